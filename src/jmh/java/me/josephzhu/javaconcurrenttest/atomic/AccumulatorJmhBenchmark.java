@@ -0,0 +1,40 @@
+package me.josephzhu.javaconcurrenttest.atomic;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JMH version of {@link AccumulatorBenchmark}, run with -t to change the number of contending threads.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class AccumulatorJmhBenchmark {
+
+    private final AtomicLong atomicLong = new AtomicLong();
+    private final LongAdder longAdder = new LongAdder();
+    private final LongAccumulator longAccumulator = new LongAccumulator(Long::sum, 0L);
+
+    @Benchmark
+    public long atomicLong() {
+        return atomicLong.incrementAndGet();
+    }
+
+    @Benchmark
+    public void longAdder() {
+        longAdder.increment();
+    }
+
+    @Benchmark
+    public void longAccumulator() {
+        longAccumulator.accumulate(1L);
+    }
+}
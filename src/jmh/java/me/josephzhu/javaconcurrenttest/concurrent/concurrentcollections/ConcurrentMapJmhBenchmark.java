@@ -0,0 +1,67 @@
+package me.josephzhu.javaconcurrenttest.concurrent.concurrentcollections;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * JMH version of {@link ConcurrentMapTest}. Keys are built up front so that
+ * the string concatenation of the original test doesn't hide the map cost.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class ConcurrentMapJmhBenchmark {
+
+    @Param({"10000"})
+    public int itemCount;
+
+    private String[] keys;
+    private HashMap<String, Long> hashMap;
+    private ConcurrentHashMap<String, LongAdder> concurrentHashMap;
+    private ConcurrentSkipListMap<String, LongAdder> concurrentSkipListMap;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        keys = IntStream.range(0, itemCount).mapToObj(i -> "item" + i).toArray(String[]::new);
+        hashMap = new HashMap<>();
+        concurrentHashMap = new ConcurrentHashMap<>(itemCount);
+        concurrentSkipListMap = new ConcurrentSkipListMap<>();
+    }
+
+    private String nextKey() {
+        return keys[ThreadLocalRandom.current().nextInt(itemCount)];
+    }
+
+    @Benchmark
+    public void hashmap() {
+        String key = nextKey();
+        synchronized (hashMap) {
+            if (hashMap.containsKey(key)) {
+                hashMap.put(key, hashMap.get(key) + 1);
+            } else {
+                hashMap.put(key, 1L);
+            }
+        }
+    }
+
+    @Benchmark
+    public void concurrentHashMap() {
+        concurrentHashMap.computeIfAbsent(nextKey(), k -> new LongAdder()).increment();
+    }
+
+    @Benchmark
+    public void concurrentSkipListMap() {
+        concurrentSkipListMap.computeIfAbsent(nextKey(), k -> new LongAdder()).increment();
+    }
+}
@@ -0,0 +1,58 @@
+package me.josephzhu.javaconcurrenttest.concurrent.executors;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JMH version of {@link ForkJoinPoolBenchmark}: every invocation submits a batch of tiny tasks and waits for all of them.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ForkJoinPoolJmhBenchmark {
+
+    static final int BATCH_SIZE = 10000;
+
+    @Param({"normal", "forkjoin"})
+    public String poolType;
+
+    @Param({"1", "4", "16"})
+    public int threadCount;
+
+    private ExecutorService executorService;
+    private final AtomicLong atomicLong = new AtomicLong();
+
+    @Setup
+    public void setup() {
+        executorService = poolType.equals("normal") ?
+                Executors.newFixedThreadPool(threadCount) :
+                Executors.newWorkStealingPool(threadCount);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void submit() throws InterruptedException {
+        CountDownLatch countDownLatch = new CountDownLatch(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            executorService.submit(() -> {
+                atomicLong.incrementAndGet();
+                countDownLatch.countDown();
+            });
+        }
+        countDownLatch.await();
+    }
+}
@@ -0,0 +1,63 @@
+package me.josephzhu.javaconcurrenttest.concurrent.executors;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * JMH version of {@link MultiThreadBenchmark}. Like the original, pool and thread creation is part of each invocation.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class MultiThreadJmhBenchmark {
+
+    static final int TASK_COUNT = 100000;
+
+    @Param({"10"})
+    public int threadCount;
+
+    @Benchmark
+    @OperationsPerInvocation(TASK_COUNT)
+    public int stream() throws InterruptedException {
+        AtomicInteger atomicInteger = new AtomicInteger();
+        ForkJoinPool forkJoinPool = new ForkJoinPool(threadCount);
+        forkJoinPool.execute(() -> IntStream.rangeClosed(1, TASK_COUNT).parallel().forEach(i -> atomicInteger.incrementAndGet()));
+        forkJoinPool.shutdown();
+        forkJoinPool.awaitTermination(1, TimeUnit.HOURS);
+        return atomicInteger.get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASK_COUNT)
+    public int thread() throws InterruptedException {
+        AtomicInteger atomicInteger = new AtomicInteger();
+        CountDownLatch countDownLatch = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(() -> {
+                for (int j = 0; j < TASK_COUNT / threadCount; j++) {
+                    atomicInteger.incrementAndGet();
+                }
+                countDownLatch.countDown();
+            }).start();
+        }
+        countDownLatch.await();
+        return atomicInteger.get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASK_COUNT)
+    public int threadpool() throws InterruptedException {
+        AtomicInteger atomicInteger = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        IntStream.rangeClosed(1, TASK_COUNT).forEach(i -> executorService.submit(atomicInteger::incrementAndGet));
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.HOURS);
+        return atomicInteger.get();
+    }
+}
@@ -0,0 +1,76 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Control;
+
+import java.util.concurrent.*;
+
+/**
+ * JMH version of {@link QueueThroughputBenchmark}. The producer/consumer ratio of the
+ * concurrent group is set with -tg, e.g. -tg 100,1. Blocking calls use a short timeout
+ * and check {@link Control#stopMeasurement} so that the iteration can always finish.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Group)
+public class QueueJmhBenchmark {
+
+    private static final Object ELEMENT = new Object();
+
+    @Param({"LinkedBlockingQueue", "LinkedTransferQueue", "ArrayBlockingQueue"})
+    public String queueType;
+
+    @Param({"1048576"})
+    public int capacity;
+
+    private BlockingQueue<Object> queue;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        switch (queueType) {
+            case "LinkedBlockingQueue":
+                queue = new LinkedBlockingQueue<>(capacity);
+                break;
+            case "LinkedTransferQueue":
+                queue = new LinkedTransferQueue<>();
+                break;
+            case "ArrayBlockingQueue":
+                queue = new ArrayBlockingQueue<>(capacity);
+                break;
+            default:
+                throw new IllegalArgumentException(queueType);
+        }
+    }
+
+    @Benchmark
+    @Group("shareThread")
+    public Object putAndTake() throws InterruptedException {
+        queue.put(ELEMENT);
+        return queue.take();
+    }
+
+    @Benchmark
+    @Group("concurrent")
+    @GroupThreads(1)
+    public void producer(Control control) throws InterruptedException {
+        while (!queue.offer(ELEMENT, 10, TimeUnit.MILLISECONDS)) {
+            if (control.stopMeasurement)
+                return;
+        }
+    }
+
+    @Benchmark
+    @Group("concurrent")
+    @GroupThreads(1)
+    public Object consumer(Control control) throws InterruptedException {
+        Object element;
+        while ((element = queue.poll(10, TimeUnit.MILLISECONDS)) == null) {
+            if (control.stopMeasurement)
+                return null;
+        }
+        return element;
+    }
+}
@@ -0,0 +1,63 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH version of {@link LockBenchmark}. Reader/writer mix is controlled by the thread distribution
+ * of the readWrite group, e.g. -tg 10,1 means 10 readers and 1 writer.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class LockJmhBenchmark {
+
+    @Param({"SyncTask",
+            "ReentrantLockTask",
+            "FairReentrantLockTask",
+            "ReentrantReadWriteLockTask",
+            "FairReentrantReadWriteLockTask",
+            "StampedLockTask"})
+    public String lockTask;
+
+    private LockTask reader;
+    private LockTask writer;
+
+    @Setup
+    public void setup() {
+        LockStrategy lockStrategy = LockStrategies.get(lockTask);
+        reader = lockStrategy.newTask(false);
+        writer = lockStrategy.newTask(true);
+        writer.reset();
+    }
+
+    @Benchmark
+    @Group("read")
+    public void readOnly() {
+        reader.doTask();
+    }
+
+    @Benchmark
+    @Group("write")
+    public void writeOnly() {
+        writer.doTask();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void reader() {
+        reader.doTask();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void writer() {
+        writer.doTask();
+    }
+}
@@ -0,0 +1,32 @@
+package me.josephzhu.javaconcurrenttest.benchmark;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Bytes allocated by the current thread, from HotSpot's com.sun.management.ThreadMXBean. Take the difference of
+ * two readings on the same thread; on JVMs without the counter every reading is 0.
+ */
+public class AllocationMeter {
+
+    private static final com.sun.management.ThreadMXBean threadMXBean = threadMXBean();
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+                return bean;
+            }
+        }
+        return null;
+    }
+
+    public static boolean isSupported() {
+        return threadMXBean != null;
+    }
+
+    public static long currentThreadAllocatedBytes() {
+        return threadMXBean == null ? 0 : threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
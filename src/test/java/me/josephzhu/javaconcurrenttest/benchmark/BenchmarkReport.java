@@ -0,0 +1,82 @@
+package me.josephzhu.javaconcurrenttest.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Collects benchmark results as rows of named columns and writes them as CSV and JSON
+ * into target/benchmark (or -Dbenchmark.output) so that runs can be diffed.
+ */
+@Slf4j
+public class BenchmarkReport {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final String name;
+    private final List<Map<String, Object>> rows = new ArrayList<>();
+
+    public BenchmarkReport(String name) {
+        this.name = name;
+    }
+
+    public synchronized BenchmarkReport add(Map<String, Object> row) {
+        rows.add(new LinkedHashMap<>(row));
+        return this;
+    }
+
+    public synchronized List<Map<String, Object>> getRows() {
+        return new ArrayList<>(rows);
+    }
+
+    public synchronized String toCsv() {
+        Set<String> columns = new LinkedHashSet<>();
+        rows.forEach(row -> columns.addAll(row.keySet()));
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append(columns.stream().map(BenchmarkReport::csvValue).collect(Collectors.joining(",")));
+        stringBuilder.append("\n");
+        for (Map<String, Object> row : rows) {
+            stringBuilder.append(columns.stream().map(column -> csvValue(row.get(column))).collect(Collectors.joining(",")));
+            stringBuilder.append("\n");
+        }
+        return stringBuilder.toString();
+    }
+
+    public synchronized String toJson() {
+        try {
+            return objectMapper.writeValueAsString(rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write() {
+        Path dir = Paths.get(System.getProperty("benchmark.output", "target/benchmark"));
+        try {
+            Files.createDirectories(dir);
+            Files.write(dir.resolve(name + ".csv"), toCsv().getBytes(StandardCharsets.UTF_8));
+            Files.write(dir.resolve(name + ".json"), toJson().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Report {} written to {}\r\n{}", name, dir.toAbsolutePath(), toCsv());
+    }
+
+    private static String csvValue(Object value) {
+        if (value == null)
+            return "";
+        String text = value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n"))
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        return text;
+    }
+}
@@ -0,0 +1,115 @@
+package me.josephzhu.javaconcurrenttest.benchmark;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HDR-style log-linear histogram of nanosecond values. Values below 2^SUB_BUCKET_BITS are exact,
+ * above that every power of two is split into 2^SUB_BUCKET_BITS buckets (about 1.6% precision).
+ * Recording doesn't allocate and isn't thread safe, keep one per thread and merge them with add().
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final long[] counts = new long[SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT];
+    private long totalCount;
+    private long sum;
+    private long max;
+
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        else if (value > MAX_VALUE)
+            value = MAX_VALUE;
+        counts[index(value)]++;
+        totalCount++;
+        sum += value;
+        if (value > max)
+            max = value;
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * @param percentile 0-100
+     * @return the highest value that is equivalent to the bucket holding the percentile
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0)
+            return 0;
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            count += counts[i];
+            if (count >= target)
+                return Math.min(highestEquivalentValue(i), max);
+        }
+        return max;
+    }
+
+    /**
+     * p50/p99/p99.9/max in the given prefix, e.g. writerP99, ready to put into a {@link BenchmarkReport} row.
+     */
+    public Map<String, Object> summary(String prefix) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put(prefix + "P50", getValueAtPercentile(50));
+        summary.put(prefix + "P99", getValueAtPercentile(99));
+        summary.put(prefix + "P999", getValueAtPercentile(99.9));
+        summary.put(prefix + "Max", getMax());
+        return summary;
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int mantissa = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + mantissa;
+    }
+
+    private static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int mantissa = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return ((long) (SUB_BUCKET_COUNT + mantissa + 1) << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, p50=%d, p99=%d, p99.9=%d, max=%d(ns)",
+                totalCount, getValueAtPercentile(50), getValueAtPercentile(99), getValueAtPercentile(99.9), max);
+    }
+}
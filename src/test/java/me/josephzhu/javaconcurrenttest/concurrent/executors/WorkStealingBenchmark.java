@@ -0,0 +1,201 @@
+package me.josephzhu.javaconcurrenttest.concurrent.executors;
+
+import lombok.extern.slf4j.Slf4j;
+import me.josephzhu.javaconcurrenttest.benchmark.BenchmarkReport;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.LongStream;
+
+/**
+ * Recursive fork/join work instead of flat submissions: fib(-Dws.fib.n) split down to -Dws.fib.threshold and
+ * the sum of a -Dws.sum.size long[] split down to -Dws.sum.threshold elements, on the WorkStealingScheduler,
+ * ForkJoinPool.commonPool() and a custom ForkJoinPool of -Dws.parallelism threads.
+ * Reports throughput in forked tasks per second, steals, and idle time as the share of the workers' wall time
+ * the process didn't spend on the CPU (plus the scheduler's own idle measurement).
+ */
+@Slf4j
+public class WorkStealingBenchmark {
+
+    private static final com.sun.management.OperatingSystemMXBean osMXBean =
+            (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+    int parallelism = Integer.getInteger("ws.parallelism", Runtime.getRuntime().availableProcessors());
+    int rounds = Integer.getInteger("ws.rounds", 5);
+    int fibN = Integer.getInteger("ws.fib.n", 35);
+    int fibThreshold = Integer.getInteger("ws.fib.threshold", 12);
+    int sumSize = Integer.getInteger("ws.sum.size", 10000000);
+    int sumThreshold = Integer.getInteger("ws.sum.threshold", 10000);
+
+    @Test
+    public void test() throws Exception {
+        long[] numbers = LongStream.range(0, sumSize).toArray();
+        long expectedSum = (long) sumSize * (sumSize - 1) / 2;
+        long expectedFib = fib(fibN);
+        long fibTasks = fibTasks(fibN);
+        long sumTasks = sumTasks(sumSize);
+
+        BenchmarkReport report = new BenchmarkReport("work-stealing");
+        try (WorkStealingScheduler scheduler = new WorkStealingScheduler(parallelism)) {
+            report.add(benchmark("WorkStealingScheduler", "fib", fibTasks, parallelism, expectedFib,
+                    () -> scheduler.invoke(new SchedulerFib(fibN)), scheduler::getSteals, scheduler));
+            report.add(benchmark("WorkStealingScheduler", "sum", sumTasks, parallelism, expectedSum,
+                    () -> scheduler.invoke(new SchedulerSum(numbers, 0, numbers.length)), scheduler::getSteals, scheduler));
+        }
+        ForkJoinPool commonPool = ForkJoinPool.commonPool();
+        report.add(benchmark("commonPool", "fib", fibTasks, commonPool.getParallelism(), expectedFib,
+                () -> commonPool.invoke(new ForkJoinFib(fibN)), commonPool::getStealCount, null));
+        report.add(benchmark("commonPool", "sum", sumTasks, commonPool.getParallelism(), expectedSum,
+                () -> commonPool.invoke(new ForkJoinSum(numbers, 0, numbers.length)), commonPool::getStealCount, null));
+        ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+        report.add(benchmark("ForkJoinPool", "fib", fibTasks, parallelism, expectedFib,
+                () -> forkJoinPool.invoke(new ForkJoinFib(fibN)), forkJoinPool::getStealCount, null));
+        report.add(benchmark("ForkJoinPool", "sum", sumTasks, parallelism, expectedSum,
+                () -> forkJoinPool.invoke(new ForkJoinSum(numbers, 0, numbers.length)), forkJoinPool::getStealCount, null));
+        forkJoinPool.shutdown();
+        report.write();
+    }
+
+    private Map<String, Object> benchmark(String pool, String workload, long tasks, int threads, long expected,
+                                          Callable<Long> run, Callable<Long> steals, WorkStealingScheduler scheduler) throws Exception {
+        log.info("Begin pool:[{}], workload:{}, tasks per round:{}", pool, workload, tasks);
+        // Warm up
+        if (run.call() != expected)
+            throw new IllegalStateException(pool + " " + workload + " got a wrong result");
+        System.gc();
+        if (scheduler != null)
+            scheduler.resetStats();
+        long stealsBefore = steals.call();
+        long cpuBefore = osMXBean.getProcessCpuTime();
+        long begin = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            if (run.call() != expected)
+                throw new IllegalStateException(pool + " " + workload + " got a wrong result");
+        }
+        long elapsed = System.nanoTime() - begin;
+        long cpu = osMXBean.getProcessCpuTime() - cpuBefore;
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("pool", pool);
+        row.put("workload", workload);
+        row.put("parallelism", threads);
+        row.put("tasks", tasks * rounds);
+        row.put("millisPerRound", elapsed / rounds / 1000000);
+        row.put("tasksPerSecond", tasks * rounds * 1000000000L / Math.max(1, elapsed));
+        row.put("steals", steals.call() - stealsBefore);
+        row.put("idlePercent", Math.max(0, 100 - cpu * 100 / Math.max(1, elapsed * Math.min(threads, Runtime.getRuntime().availableProcessors()))));
+        if (scheduler != null) {
+            Map<String, Object> stats = scheduler.stats();
+            row.put("failedSteals", stats.get("failedSteals"));
+            row.put("workerIdlePercent", (long) stats.get("idleNanos") * 100 / Math.max(1, elapsed * threads));
+        }
+        log.info("Finish pool:[{}], workload:{}, result:{}", pool, workload, row);
+        return row;
+    }
+
+    private static long fib(int n) {
+        return n <= 1 ? n : fib(n - 1) + fib(n - 2);
+    }
+
+    // Tasks created for fib(n): every call above the threshold forks one subtask
+    private long fibTasks(int n) {
+        return n <= fibThreshold ? 0 : 1 + fibTasks(n - 1) + fibTasks(n - 2);
+    }
+
+    private long sumTasks(int length) {
+        return length <= sumThreshold ? 0 : 1 + sumTasks(length / 2) + sumTasks(length - length / 2);
+    }
+
+    private long sum(long[] numbers, int from, int to) {
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += numbers[i];
+        }
+        return sum;
+    }
+
+    private class SchedulerFib extends WorkStealingScheduler.Task<Long> {
+        private final int n;
+
+        SchedulerFib(int n) {
+            this.n = n;
+        }
+
+        @Override
+        protected Long compute() {
+            if (n <= fibThreshold)
+                return fib(n);
+            SchedulerFib left = new SchedulerFib(n - 1);
+            left.fork();
+            return new SchedulerFib(n - 2).compute() + left.join();
+        }
+    }
+
+    private class ForkJoinFib extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+        private final int n;
+
+        ForkJoinFib(int n) {
+            this.n = n;
+        }
+
+        @Override
+        protected Long compute() {
+            if (n <= fibThreshold)
+                return fib(n);
+            ForkJoinFib left = new ForkJoinFib(n - 1);
+            left.fork();
+            return new ForkJoinFib(n - 2).compute() + left.join();
+        }
+    }
+
+    private class SchedulerSum extends WorkStealingScheduler.Task<Long> {
+        private final long[] numbers;
+        private final int from;
+        private final int to;
+
+        SchedulerSum(long[] numbers, int from, int to) {
+            this.numbers = numbers;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= sumThreshold)
+                return sum(numbers, from, to);
+            int middle = from + (to - from) / 2;
+            SchedulerSum left = new SchedulerSum(numbers, from, middle);
+            left.fork();
+            return new SchedulerSum(numbers, middle, to).compute() + left.join();
+        }
+    }
+
+    private class ForkJoinSum extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+        private final long[] numbers;
+        private final int from;
+        private final int to;
+
+        ForkJoinSum(long[] numbers, int from, int to) {
+            this.numbers = numbers;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= sumThreshold)
+                return sum(numbers, from, to);
+            int middle = from + (to - from) / 2;
+            ForkJoinSum left = new ForkJoinSum(numbers, from, middle);
+            left.fork();
+            return new ForkJoinSum(numbers, middle, to).compute() + left.join();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package me.josephzhu.javaconcurrenttest.concurrent.executors;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Chase-Lev work-stealing deque ("Dynamic Circular Work-Stealing Deque", with the fences from Le et al.,
+ * "Correct and Efficient Work-Stealing for Weak Memory Models"). The owner thread pushes and pops at the
+ * bottom without any CAS unless it races for the last element; other threads steal from the top with a CAS.
+ * The array doubles when full and never shrinks.
+ * push/pop must only be called by the owner thread, steal by any thread.
+ */
+public class WorkStealingDeque<E> {
+
+    private static final int MIN_CAPACITY = 64;
+
+    private final AtomicLong top = new AtomicLong();
+    private final AtomicLong bottom = new AtomicLong();
+    private volatile Array<E> array;
+
+    public WorkStealingDeque() {
+        this(MIN_CAPACITY);
+    }
+
+    public WorkStealingDeque(int capacity) {
+        array = new Array<>(Math.max(MIN_CAPACITY, Integer.highestOneBit(capacity - 1) << 1));
+    }
+
+    public void push(E e) {
+        long b = bottom.get();
+        long t = top.get();
+        Array<E> a = array;
+        if (b - t >= a.capacity()) {
+            a = a.grow(t, b);
+            array = a;
+        }
+        a.set(b, e);
+        // Release: a thief that sees the new bottom sees the element
+        bottom.lazySet(b + 1);
+    }
+
+    public E pop() {
+        long b = bottom.get() - 1;
+        Array<E> a = array;
+        // Volatile write then volatile read of top, the StoreLoad ordering that keeps a thief from taking the
+        // same element
+        bottom.set(b);
+        long t = top.get();
+        if (t > b) {
+            bottom.lazySet(b + 1);
+            return null;
+        }
+        E e = a.get(b);
+        if (t == b) {
+            // Last element, race the thieves for it
+            if (!top.compareAndSet(t, t + 1))
+                e = null;
+            // Whoever won has read the slot and top is past it now, so nobody reads it again until the next push
+            a.set(b, null);
+            bottom.lazySet(b + 1);
+        } else {
+            a.set(b, null);
+        }
+        return e;
+    }
+
+    /**
+     * Returns null if the deque is empty or another thread won the race for the top element.
+     */
+    public E steal() {
+        long t = top.get();
+        long b = bottom.get();
+        if (t >= b)
+            return null;
+        E e = array.get(t);
+        return top.compareAndSet(t, t + 1) ? e : null;
+    }
+
+    public int size() {
+        return (int) Math.max(0, bottom.get() - top.get());
+    }
+
+    public boolean isEmpty() {
+        return bottom.get() <= top.get();
+    }
+
+    private static final class Array<E> {
+        private final AtomicReferenceArray<E> elements;
+        private final int mask;
+
+        Array(int capacity) {
+            elements = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+
+        E get(long index) {
+            return elements.get((int) (index & mask));
+        }
+
+        void set(long index, E e) {
+            elements.lazySet((int) (index & mask), e);
+        }
+
+        // Same logical indexes in the new array, so a thief still reading the old one gets the same element
+        Array<E> grow(long top, long bottom) {
+            Array<E> grown = new Array<>(capacity() * 2);
+            for (long i = top; i < bottom; i++) {
+                grown.set(i, get(i));
+            }
+            return grown;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package me.josephzhu.javaconcurrenttest.concurrent.executors;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+@Slf4j
+public class WorkStealingDequeTest {
+
+    @Test
+    public void test() {
+        WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+        // More than the initial capacity, so the array grows
+        for (int i = 0; i < 1000; i++) {
+            deque.push(i);
+        }
+        Assert.assertEquals(1000, deque.size());
+        Assert.assertEquals(999, (int) deque.pop());
+        Assert.assertEquals(0, (int) deque.steal());
+        Assert.assertEquals(998, (int) deque.pop());
+        Assert.assertEquals(1, (int) deque.steal());
+        while (deque.pop() != null) {
+        }
+        Assert.assertTrue(deque.isEmpty());
+        Assert.assertNull(deque.steal());
+    }
+
+    // The owner pushes and pops while thieves steal, every element must be taken exactly once
+    @Test
+    public void concurrent() throws InterruptedException {
+        int count = 1000000;
+        WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+        AtomicIntegerArray taken = new AtomicIntegerArray(count);
+        AtomicBoolean done = new AtomicBoolean();
+        List<Thread> thieves = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Thread thief = new Thread(() -> {
+                while (!done.get() || !deque.isEmpty()) {
+                    Integer e = deque.steal();
+                    if (e != null)
+                        taken.incrementAndGet(e);
+                }
+            });
+            thieves.add(thief);
+            thief.start();
+        }
+        for (int i = 0; i < count; i++) {
+            deque.push(i);
+            if (i % 3 == 0) {
+                Integer e = deque.pop();
+                if (e != null)
+                    taken.incrementAndGet(e);
+            }
+        }
+        Integer e;
+        while ((e = deque.pop()) != null) {
+            taken.incrementAndGet(e);
+        }
+        done.set(true);
+        for (Thread thief : thieves) {
+            thief.join();
+        }
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals("element " + i, 1, taken.get(i));
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package me.josephzhu.javaconcurrenttest.concurrent.executors;
+
+import me.josephzhu.javaconcurrenttest.util.SpinWait;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A minimal fork/join scheduler on {@link WorkStealingDeque}s, to look at the queue design without the rest of
+ * ForkJoinPool. Every worker owns a deque: fork() pushes to the bottom of the current worker's deque, the
+ * worker pops from the bottom (newest, smallest task first) and, when its own deque is empty, steals from the
+ * top (oldest, biggest task) of a random other worker. join() never blocks a worker, it runs local or stolen
+ * tasks until the joined task is done. Tasks invoked from outside the pool go to a shared queue. Idle workers spin,
+ * yield and then park for a short time instead of being signalled.
+ */
+public class WorkStealingScheduler implements AutoCloseable {
+
+    private static final int SPINS = 64;
+    private static final int YIELDS = 64;
+    private static final long PARK_NANOS = 50000;
+
+    private final Worker[] workers;
+    private final Queue<Task<?>> submissions = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    public WorkStealingScheduler(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism:" + parallelism);
+        workers = new Worker[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            workers[i] = new Worker(i);
+        }
+        for (Worker worker : workers) {
+            worker.start();
+        }
+    }
+
+    public int getParallelism() {
+        return workers.length;
+    }
+
+    /**
+     * Runs the task in the pool and waits for its result.
+     */
+    public <V> V invoke(Task<V> task) throws InterruptedException {
+        Worker worker = currentWorker();
+        if (worker != null)
+            return task.invoke();
+        task.external = true;
+        submissions.add(task);
+        synchronized (task) {
+            while (!task.isDone()) {
+                task.wait();
+            }
+        }
+        return task.result();
+    }
+
+    public long getSteals() {
+        long steals = 0;
+        for (Worker worker : workers) {
+            steals += worker.steals;
+        }
+        return steals;
+    }
+
+    public Map<String, Object> stats() {
+        long executed = 0, steals = 0, failedSteals = 0, idleNanos = 0;
+        for (Worker worker : workers) {
+            executed += worker.executed;
+            steals += worker.steals;
+            failedSteals += worker.failedSteals;
+            idleNanos += worker.idleNanos;
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("parallelism", workers.length);
+        stats.put("executed", executed);
+        stats.put("steals", steals);
+        stats.put("failedSteals", failedSteals);
+        stats.put("idleNanos", idleNanos);
+        return stats;
+    }
+
+    /**
+     * Counters are only written by their worker, so each worker resets its own; returns once all of them did.
+     * Call it while the pool has nothing to do.
+     */
+    public void resetStats() {
+        for (Worker worker : workers) {
+            worker.reset = true;
+        }
+        for (Worker worker : workers) {
+            while (worker.reset && running) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Stops the workers and waits for them, tasks still queued never run.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        try {
+            for (Worker worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Worker currentWorker() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof Worker && ((Worker) thread).scheduler() == this)
+            return (Worker) thread;
+        return null;
+    }
+
+    private final class Worker extends Thread {
+        private final WorkStealingDeque<Task<?>> deque = new WorkStealingDeque<>();
+        // Written by this worker only and read racily for stats, so counting costs no fence per task
+        private long executed;
+        private long steals;
+        private long failedSteals;
+        private long idleNanos;
+        private volatile boolean reset;
+
+        Worker(int index) {
+            super("work-stealing-worker-" + index);
+            setDaemon(true);
+        }
+
+        WorkStealingScheduler scheduler() {
+            return WorkStealingScheduler.this;
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            long idleSince = 0;
+            while (running) {
+                if (reset) {
+                    executed = steals = failedSteals = idleNanos = 0;
+                    idleSince = System.nanoTime();
+                    reset = false;
+                }
+                Task<?> task = findTask();
+                if (task != null) {
+                    if (idle > 0) {
+                        idleNanos += System.nanoTime() - idleSince;
+                        idle = 0;
+                    }
+                    execute(task);
+                    continue;
+                }
+                if (idle == 0)
+                    idleSince = System.nanoTime();
+                if (idle < SPINS)
+                    SpinWait.onSpinWait();
+                else if (idle < SPINS + YIELDS)
+                    Thread.yield();
+                else
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                idle++;
+            }
+        }
+
+        Task<?> findTask() {
+            Task<?> task = deque.pop();
+            if (task == null)
+                task = steal();
+            if (task == null)
+                task = submissions.poll();
+            return task;
+        }
+
+        Task<?> steal() {
+            int count = workers.length;
+            if (count == 1)
+                return null;
+            int start = ThreadLocalRandom.current().nextInt(count);
+            for (int i = 0; i < count; i++) {
+                Worker victim = workers[(start + i) % count];
+                if (victim == this || victim.deque.isEmpty())
+                    continue;
+                Task<?> task = victim.deque.steal();
+                if (task != null) {
+                    steals++;
+                    return task;
+                }
+                failedSteals++;
+            }
+            return null;
+        }
+
+        void execute(Task<?> task) {
+            task.run();
+            executed++;
+        }
+    }
+
+    /**
+     * A forkable computation, the counterpart of RecursiveTask.
+     */
+    public abstract static class Task<V> {
+        private volatile boolean done;
+        private V result;
+        private Throwable exception;
+        private boolean external;
+
+        protected abstract V compute();
+
+        public final Task<V> fork() {
+            Thread thread = Thread.currentThread();
+            if (!(thread instanceof WorkStealingScheduler.Worker))
+                throw new IllegalStateException("fork() outside of a WorkStealingScheduler");
+            ((WorkStealingScheduler.Worker) thread).deque.push(this);
+            return this;
+        }
+
+        public final V join() {
+            Thread thread = Thread.currentThread();
+            if (!(thread instanceof WorkStealingScheduler.Worker))
+                throw new IllegalStateException("join() outside of a WorkStealingScheduler, use invoke()");
+            WorkStealingScheduler.Worker worker = (WorkStealingScheduler.Worker) thread;
+            int idle = 0;
+            while (!done) {
+                Task<?> task = worker.findTask();
+                if (task != null) {
+                    worker.execute(task);
+                    idle = 0;
+                } else if (idle++ < SPINS) {
+                    SpinWait.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            return result();
+        }
+
+        /**
+         * Runs the task in the current thread.
+         */
+        public final V invoke() {
+            run();
+            return result();
+        }
+
+        public final boolean isDone() {
+            return done;
+        }
+
+        void run() {
+            try {
+                result = compute();
+            } catch (Throwable e) {
+                exception = e;
+            }
+            done = true;
+            if (external) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        V result() {
+            if (exception instanceof RuntimeException)
+                throw (RuntimeException) exception;
+            if (exception instanceof Error)
+                throw (Error) exception;
+            if (exception != null)
+                throw new RuntimeException(exception);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import me.josephzhu.javaconcurrenttest.util.PaddedAtomicLong;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BlockingQueue on top of a bounded, power-of-two sized, lock-free offer/poll. The blocking methods wait with
+ * the {@link WaitStrategy} instead of conditions. Iteration is weakly consistent and read-only, see
+ * {@link #iterator()}.
+ */
+public abstract class AbstractRingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E>, BatchQueue<E> {
+
+    protected final int capacity;
+    protected final int mask;
+    protected final WaitStrategy waitStrategy;
+    protected final PaddedAtomicLong producerIndex = new PaddedAtomicLong();
+    protected final PaddedAtomicLong consumerIndex = new PaddedAtomicLong();
+
+    protected AbstractRingQueue(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity:" + capacity);
+        this.capacity = roundToPowerOfTwo(capacity);
+        this.mask = this.capacity - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * SPSC for 1:1, MPSC for n:1 and MPMC otherwise.
+     */
+    public static <E> AbstractRingQueue<E> forTopology(int producerCount, int consumerCount, int capacity, WaitStrategy waitStrategy) {
+        if (consumerCount == 1)
+            return producerCount == 1 ? new SpscArrayQueue<>(capacity, waitStrategy) : new MpscArrayQueue<>(capacity, waitStrategy);
+        return new MpmcArrayQueue<>(capacity, waitStrategy);
+    }
+
+    static int roundToPowerOfTwo(int value) {
+        if (value > 1 << 30)
+            throw new IllegalArgumentException("capacity:" + value);
+        return Math.max(2, Integer.highestOneBit(value - 1) << 1);
+    }
+
+    /**
+     * Reads the element at pos without removing it, null if it isn't published yet or was already taken.
+     */
+    protected abstract E elementAt(long pos);
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    @Override
+    public int size() {
+        long after = consumerIndex.get();
+        while (true) {
+            long before = after;
+            long producer = producerIndex.get();
+            after = consumerIndex.get();
+            if (before == after)
+                return (int) Math.max(0, Math.min(capacity, producer - after));
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        int counter = 0;
+        while (!offer(e)) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            counter = waitStrategy.idle(counter);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int counter = 0;
+        while (!offer(e)) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (System.nanoTime() - deadline >= 0)
+                return false;
+            counter = waitStrategy.idle(counter);
+        }
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        int counter = 0;
+        E e;
+        while ((e = poll()) == null) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            counter = waitStrategy.idle(counter);
+        }
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int counter = 0;
+        E e;
+        while ((e = poll()) == null) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (System.nanoTime() - deadline >= 0)
+                return null;
+            counter = waitStrategy.idle(counter);
+        }
+        return e;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == this)
+            throw new IllegalArgumentException();
+        int count = 0;
+        E e;
+        while (count < maxElements && (e = poll()) != null) {
+            c.add(e);
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public int offerBatch(List<? extends E> batch) {
+        int count = 0;
+        for (E e : batch) {
+            if (!offer(e))
+                break;
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public int drainBatch(Collection<? super E> target, int maxElements) {
+        return drainTo(target, maxElements);
+    }
+
+    @Override
+    public BlockingQueue<E> queue() {
+        return this;
+    }
+
+    /**
+     * Walks the slots from the consumer index to the producer index as they were when the iterator was
+     * created, skipping what was taken meanwhile. Never throws ConcurrentModificationException, remove() is
+     * not supported.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private long pos = consumerIndex.get();
+            private final long end = producerIndex.get();
+            private E next = advance();
+
+            private E advance() {
+                pos = Math.max(pos, consumerIndex.get());
+                while (pos < end) {
+                    E e = elementAt(pos++);
+                    if (e != null)
+                        return e;
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public E next() {
+                E e = next;
+                if (e == null)
+                    throw new NoSuchElementException();
+                next = advance();
+                return e;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[capacity=" + capacity + ", size=" + size() + ", waitStrategy=" + waitStrategy + "]";
+    }
+}
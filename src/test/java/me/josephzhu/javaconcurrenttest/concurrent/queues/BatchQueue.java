@@ -0,0 +1,85 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Publishes and consumes elements in batches so the per-call cost (lock, signal, index write) is paid once per
+ * batch. Queues without native support are wrapped by {@link #of(BlockingQueue)}: their offerBatch offers one by
+ * one, their drainBatch is drainTo, which takes the lock once on the JDK blocking queues.
+ */
+public interface BatchQueue<E> {
+
+    /**
+     * Offers the elements in order without blocking and returns how many of them were accepted.
+     */
+    int offerBatch(List<? extends E> batch);
+
+    /**
+     * Moves up to maxElements into target without blocking and returns how many were moved.
+     */
+    int drainBatch(Collection<? super E> target, int maxElements);
+
+    BlockingQueue<E> queue();
+
+    default void putBatch(List<? extends E> batch) throws InterruptedException {
+        int offered = 0;
+        while (offered < batch.size()) {
+            int count = offerBatch(batch.subList(offered, batch.size()));
+            if (count == 0) {
+                queue().put(batch.get(offered));
+                count = 1;
+            }
+            offered += count;
+        }
+    }
+
+    /**
+     * Blocks until at least one element is available, then drains up to maxElements.
+     */
+    default int takeBatch(Collection<? super E> target, int maxElements) throws InterruptedException {
+        int count = drainBatch(target, maxElements);
+        if (count == 0) {
+            target.add(queue().take());
+            count = 1 + drainBatch(target, maxElements - 1);
+        }
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <E> BatchQueue<E> of(BlockingQueue<E> queue) {
+        if (queue instanceof BatchQueue)
+            return (BatchQueue<E>) queue;
+        return new Adapter<>(queue);
+    }
+
+    class Adapter<E> implements BatchQueue<E> {
+        private final BlockingQueue<E> queue;
+
+        Adapter(BlockingQueue<E> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public int offerBatch(List<? extends E> batch) {
+            int count = 0;
+            for (E e : batch) {
+                if (!queue.offer(e))
+                    break;
+                count++;
+            }
+            return count;
+        }
+
+        @Override
+        public int drainBatch(Collection<? super E> target, int maxElements) {
+            return queue.drainTo(target, maxElements);
+        }
+
+        @Override
+        public BlockingQueue<E> queue() {
+            return queue;
+        }
+    }
+}
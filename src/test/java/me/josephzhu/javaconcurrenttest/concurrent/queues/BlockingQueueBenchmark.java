@@ -1,11 +1,14 @@
 package me.josephzhu.javaconcurrenttest.concurrent.queues;
 
 import lombok.extern.slf4j.Slf4j;
+import me.josephzhu.javaconcurrenttest.benchmark.BenchmarkReport;
 import org.junit.Test;
 import org.springframework.util.StopWatch;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ForkJoinPool;
@@ -28,6 +31,75 @@ public class BlockingQueueBenchmark {
         benchmark("take", queues, taskCount, threadCount);
     }
 
+    @Test
+    public void longQueue() throws InterruptedException {
+        BenchmarkReport report = new BenchmarkReport("blocking-queue-long");
+
+        long heapBefore = usedHeap();
+        ArrayBlockingQueue<Integer> arrayBlockingQueue = new ArrayBlockingQueue<>(taskCount, false);
+        long put = phase(i -> {
+            try {
+                arrayBlockingQueue.put(i);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        });
+        long footprint = usedHeap() - heapBefore;
+        long take = phase(i -> {
+            try {
+                arrayBlockingQueue.take();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        });
+        report.add(row("ArrayBlockingQueue<Integer>", put, take, footprint));
+
+        heapBefore = usedHeap();
+        LongBlockingQueue longBlockingQueue = new LongBlockingQueue(taskCount, false);
+        put = phase(i -> {
+            try {
+                longBlockingQueue.put(i);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        });
+        footprint = usedHeap() - heapBefore;
+        take = phase(i -> {
+            try {
+                longBlockingQueue.take();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        });
+        report.add(row("LongBlockingQueue", put, take, footprint));
+        report.write();
+    }
+
+    private long phase(IntConsumer task) throws InterruptedException {
+        System.gc();
+        long begin = System.nanoTime();
+        run(task, taskCount, threadCount);
+        return System.nanoTime() - begin;
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        System.gc();
+        return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    }
+
+    // footprint is the heap retained by a full queue (the queue and its elements)
+    private Map<String, Object> row(String queue, long putNanos, long takeNanos, long footprint) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("queue", queue);
+        row.put("elements", taskCount);
+        row.put("putOpsPerSecond", taskCount * 1000000000L / Math.max(1, putNanos));
+        row.put("takeOpsPerSecond", taskCount * 1000000000L / Math.max(1, takeNanos));
+        row.put("footprintBytes", footprint);
+        row.put("bytesPerElement", footprint / taskCount);
+        return row;
+    }
+
     private List<BlockingQueue<Integer>> getQueues() {
 //        return Arrays.asList(
 //                new LinkedBlockingQueue<>(),
@@ -58,8 +130,12 @@ public class BlockingQueueBenchmark {
     }
 
     private void tasks(BlockingQueue<Integer> queue, int taskCount, int threadCount, String operation) throws InterruptedException {
+        run(task(queue, operation), taskCount, threadCount);
+    }
+
+    private void run(IntConsumer task, int taskCount, int threadCount) throws InterruptedException {
         ForkJoinPool forkJoinPool = new ForkJoinPool(threadCount);
-        forkJoinPool.execute(() -> IntStream.rangeClosed(1, taskCount).parallel().forEach(task(queue, operation)));
+        forkJoinPool.execute(() -> IntStream.rangeClosed(1, taskCount).parallel().forEach(task));
         forkJoinPool.shutdown();
         forkJoinPool.awaitTermination(1, TimeUnit.HOURS);
     }
@@ -1,14 +1,20 @@
 package me.josephzhu.javaconcurrenttest.concurrent.queues;
 
 import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
 import org.junit.Test;
 import org.springframework.util.StopWatch;
 
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 @Slf4j
 public class BlockingQueueMisuse {
@@ -42,4 +48,124 @@ public class BlockingQueueMisuse {
         stopWatch.stop();
         log.info(stopWatch.prettyPrint());
     }
+
+    /**
+     * The same misuse with a 16MB guard in front of the queue: producers that find the budget used up are
+     * rejected right away instead of growing the heap, and takes are only submitted for accepted messages.
+     */
+    @Test
+    public void guardedReject() throws InterruptedException {
+        int taskCount = 1000000;
+        MemoryBoundedBlockingQueue<String> queue = new MemoryBoundedBlockingQueue<>(new LinkedBlockingQueue<>(),
+                SizeEstimator.strings().plus(24), 16 * 1024 * 1024, MemoryBoundedBlockingQueue.Policy.REJECT);
+        LongAdder accepted = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start("put");
+        ExecutorService threadPool = Executors.newCachedThreadPool();
+        IntStream.rangeClosed(1, taskCount).forEach(i -> threadPool.submit(() -> {
+            try {
+                queue.put("message" + i);
+                accepted.increment();
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }));
+        threadPool.shutdown();
+        threadPool.awaitTermination(1, TimeUnit.HOURS);
+        stopWatch.stop();
+        log.info("After put: {}", queue);
+        Assert.assertEquals(taskCount, accepted.sum() + rejected.sum());
+        Assert.assertEquals(accepted.sum(), queue.size());
+        Assert.assertTrue(queue.getPeakBytes() <= queue.getMaxBytes());
+
+        stopWatch.start("take");
+        ExecutorService takePool = Executors.newCachedThreadPool();
+        LongStream.range(0, accepted.sum()).forEach(i -> takePool.submit(() -> {
+            try {
+                log.debug("Got:{}", queue.take());
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }));
+        takePool.shutdown();
+        takePool.awaitTermination(1, TimeUnit.HOURS);
+        stopWatch.stop();
+        log.info("After take: {}", queue);
+        log.info(stopWatch.prettyPrint());
+        Assert.assertEquals(0, queue.getUsedBytes());
+    }
+
+    /**
+     * Blocking producers and consumers on a fixed pool: the producers wait for budget instead of being
+     * rejected, every message gets through and the queue never holds more than the budget.
+     */
+    @Test
+    public void guardedBlock() throws InterruptedException {
+        int taskCount = 1000000;
+        MemoryBoundedBlockingQueue<String> queue = new MemoryBoundedBlockingQueue<>(new LinkedBlockingQueue<>(),
+                SizeEstimator.strings().plus(24), 1024 * 1024, MemoryBoundedBlockingQueue.Policy.BLOCK);
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start("guardedBlock");
+        ExecutorService threadPool = Executors.newFixedThreadPool(10);
+        for (int p = 0; p < 5; p++) {
+            int producer = p;
+            threadPool.submit(() -> {
+                try {
+                    for (int i = producer; i < taskCount; i += 5) {
+                        queue.put("message" + i);
+                    }
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            });
+            threadPool.submit(() -> {
+                try {
+                    for (int i = producer; i < taskCount; i += 5) {
+                        log.debug("Got:{}", queue.take());
+                    }
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+        threadPool.shutdown();
+        threadPool.awaitTermination(1, TimeUnit.HOURS);
+        stopWatch.stop();
+        log.info("{}", queue);
+        log.info(stopWatch.prettyPrint());
+        Assert.assertTrue(queue.getPeakBytes() <= queue.getMaxBytes());
+        Assert.assertEquals(0, queue.getUsedBytes());
+        Assert.assertEquals(0, queue.size());
+    }
+
+    /**
+     * The byte budget has room but the delegate is full: put() waits for a take() and a timed offer() gives up
+     * after its timeout, in both cases without leaking the bytes charged for the element.
+     */
+    @Test
+    public void boundedDelegate() throws Exception {
+        MemoryBoundedBlockingQueue<String> queue = new MemoryBoundedBlockingQueue<>(new ArrayBlockingQueue<>(1),
+                SizeEstimator.fixed(100), 1024, MemoryBoundedBlockingQueue.Policy.BLOCK);
+        queue.put("first");
+        Assert.assertFalse(queue.offer("second", 50, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(100, queue.getUsedBytes());
+        FutureTask<Void> put = new FutureTask<>(() -> {
+            queue.put("second");
+            return null;
+        });
+        new Thread(put).start();
+        Assert.assertEquals("first", queue.take());
+        put.get(1, TimeUnit.SECONDS);
+        Assert.assertEquals("second", queue.take());
+        Assert.assertEquals(0, queue.getUsedBytes());
+        try {
+            queue.offer(null);
+            Assert.fail();
+        } catch (NullPointerException expected) {
+        }
+        Assert.assertEquals(0, queue.getUsedBytes());
+    }
 }
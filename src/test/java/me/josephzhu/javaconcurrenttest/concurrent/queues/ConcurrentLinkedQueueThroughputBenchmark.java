@@ -4,19 +4,35 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import me.josephzhu.javaconcurrenttest.benchmark.AllocationMeter;
+import me.josephzhu.javaconcurrenttest.benchmark.BenchmarkReport;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
 
+/**
+ * Durations are measured from releasing the start latch, so thread creation is not included. The enqueue rate
+ * runs until the last producer is done, the dequeue rate until the last consumer is done (in
+ * ProducerAndThenConsumer each from the start of its own phase). In ProducerAndConsumerShareThread every thread
+ * offers and polls, so both rates are the combined rate.
+ */
 @Slf4j
 public class ConcurrentLinkedQueueThroughputBenchmark {
 
-    private final static int element_count = 10000000;
+    private final static int element_count = Integer.getInteger("queue.elementCount", 10000000);
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAccumulator producerFinish = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator consumerFinish = new LongAccumulator(Math::max, 0);
 
     @Test
     public void test() throws InterruptedException {
@@ -41,27 +57,56 @@ public class ConcurrentLinkedQueueThroughputBenchmark {
         testCases.add(new TestCase(element_count, Mode.ProducerAndThenConsumer, 100, 100));
         testCases.add(new TestCase(element_count, Mode.ProducerAndThenConsumer, 1000, 1000));
 
+        BenchmarkReport report = new BenchmarkReport("concurrent-linked-queue-throughput");
         ConcurrentLinkedQueue<String> concurrentLinkedQueue = new ConcurrentLinkedQueue<>();
         for (TestCase testCase : testCases) {
             System.gc();
-            benchmark(concurrentLinkedQueue, testCase);
+            report.add(benchmark(concurrentLinkedQueue, testCase));
         }
         concurrentLinkedQueue = null;
 
         LinkedBlockingQueue<String> linkedBlockingQueue = new LinkedBlockingQueue<>();
         for (TestCase testCase : testCases) {
             System.gc();
-            benchmark(linkedBlockingQueue, testCase);
+            report.add(benchmark(linkedBlockingQueue, testCase));
         }
         linkedBlockingQueue = null;
+        report.write();
     }
 
-    private void benchmark(Queue<String> queue, TestCase testCase) throws InterruptedException {
+    @Test
+    public void payload() throws InterruptedException {
+        List<TestCase> testCases = new ArrayList<>();
+        for (Payload payload : Payload.values()) {
+            testCases.add(new TestCase(element_count, Mode.ProducerAndConsumerShareThread, 10, 0, payload));
+            testCases.add(new TestCase(element_count, Mode.ProducerAndThenConsumer, 10, 10, payload));
+        }
+
+        List<Queue<String>> queues = new ArrayList<>();
+        queues.add(new ConcurrentLinkedQueue<>());
+        queues.add(new LinkedBlockingQueue<>());
+
+        BenchmarkReport report = new BenchmarkReport("concurrent-linked-queue-payload");
+        for (Queue<String> queue : queues) {
+            for (TestCase testCase : testCases) {
+                System.gc();
+                report.add(benchmark(queue, testCase));
+            }
+        }
+        report.write();
+    }
 
-        long begin = System.currentTimeMillis();
+    private Map<String, Object> benchmark(Queue<String> queue, TestCase testCase) throws InterruptedException {
+
+        allocatedBytes.reset();
+        producerFinish.reset();
+        consumerFinish.reset();
         log.info("\r\n==========================\r\nBegin benchmark Queue:[{}], case:{}", queue.getClass().getSimpleName(),
                 testCase.toString());
         CountDownLatch startCountDownLatch = new CountDownLatch(1);
+        long enqueueNanos;
+        long dequeueNanos;
+        long durationNanos;
 
         if (testCase.mode == Mode.ProducerAndConsumerShareThread) {
             CountDownLatch finishCountDownLatch = new CountDownLatch(testCase.getProducerCount());
@@ -73,9 +118,12 @@ public class ConcurrentLinkedQueueThroughputBenchmark {
                         queue,
                         testCase)).start();
             }
+            long begin = System.nanoTime();
             startCountDownLatch.countDown();
             finishCountDownLatch.await();
-
+            durationNanos = System.nanoTime() - begin;
+            enqueueNanos = durationNanos;
+            dequeueNanos = durationNanos;
         } else if (testCase.mode == Mode.ConcurrentProducerAndConsumer) {
             CountDownLatch finishCountDownLatch = new CountDownLatch(testCase.getProducerCount() + testCase.getConsumerCount());
             for (int i = 0; i < testCase.getProducerCount(); i++) {
@@ -93,9 +141,13 @@ public class ConcurrentLinkedQueueThroughputBenchmark {
                         queue,
                         testCase)).start();
             }
+            long begin = System.nanoTime();
             startCountDownLatch.countDown();
             finishCountDownLatch.await();
-        } else if (testCase.mode == Mode.ProducerAndThenConsumer) {
+            durationNanos = System.nanoTime() - begin;
+            enqueueNanos = producerFinish.get() - begin;
+            dequeueNanos = consumerFinish.get() - begin;
+        } else {
             CountDownLatch finishCountDownLatch = new CountDownLatch(testCase.getProducerCount());
             for (int i = 0; i < testCase.getProducerCount(); i++) {
                 new Thread(new ProducerTask(
@@ -105,8 +157,10 @@ public class ConcurrentLinkedQueueThroughputBenchmark {
                         queue,
                         testCase)).start();
             }
+            long begin = System.nanoTime();
             startCountDownLatch.countDown();
             finishCountDownLatch.await();
+            enqueueNanos = System.nanoTime() - begin;
 
             startCountDownLatch = new CountDownLatch(1);
             finishCountDownLatch = new CountDownLatch(testCase.getConsumerCount());
@@ -117,14 +171,33 @@ public class ConcurrentLinkedQueueThroughputBenchmark {
                         queue,
                         testCase)).start();
             }
+            begin = System.nanoTime();
             startCountDownLatch.countDown();
             finishCountDownLatch.await();
+            dequeueNanos = System.nanoTime() - begin;
+            durationNanos = enqueueNanos + dequeueNanos;
         }
 
-        long finish = System.currentTimeMillis();
-        log.info("Finish benchmark Queue:[{}], case:{}, QPS:{}\r\n==========================\n", queue.getClass().getSimpleName(),
-                testCase.toString(),
-                (long) element_count / (finish - begin) / 10);
+        long elements = testCase.elements();
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("queue", queue.getClass().getSimpleName());
+        row.put("mode", testCase.getMode());
+        row.put("producerCount", testCase.getProducerCount());
+        row.put("consumerCount", testCase.getConsumerCount());
+        row.put("payload", testCase.getPayload());
+        row.put("elements", elements);
+        row.put("durationMillis", durationNanos / 1000000);
+        row.put("opsPerSecond", perSecond(elements, durationNanos));
+        row.put("enqueueOpsPerSecond", perSecond(elements, enqueueNanos));
+        row.put("dequeueOpsPerSecond", perSecond(elements, dequeueNanos));
+        row.put("bytesPerElement", allocatedBytes.sum() / elements);
+        log.info("Finish benchmark Queue:[{}], case:{}, result:{}\r\n==========================\n", queue.getClass().getSimpleName(),
+                testCase.toString(), row);
+        return row;
+    }
+
+    private static long perSecond(long operations, long nanos) {
+        return nanos <= 0 ? 0 : (long) (operations * 1e9 / nanos);
     }
 
     enum Mode {
@@ -138,6 +211,7 @@ public class ConcurrentLinkedQueueThroughputBenchmark {
         private String name;
         private Queue<String> queue;
         private TestCase testCase;
+        private IntFunction<String> elements;
         private CountDownLatch startCountDownLatch;
         private CountDownLatch finishCountDownLatch;
 
@@ -151,6 +225,7 @@ public class ConcurrentLinkedQueueThroughputBenchmark {
             this.name = name;
             this.queue = queue;
             this.testCase = testCase;
+            this.elements = testCase.getPayload().elements(name);
         }
 
         @Override
@@ -162,12 +237,13 @@ public class ConcurrentLinkedQueueThroughputBenchmark {
                 e.printStackTrace();
             }
 
+            long allocated = AllocationMeter.currentThreadAllocatedBytes();
             int count = testCase.elementCount / testCase.getProducerCount();
 
             if (testCase.mode == Mode.ProducerAndConsumerShareThread) {
                 for (int i = 0; i < count; i++) {
                     try {
-                        queue.offer(name + i);
+                        queue.offer(elements.apply(i));
                         queue.poll();
                     } catch (Exception e) {
                         e.printStackTrace();
@@ -176,12 +252,14 @@ public class ConcurrentLinkedQueueThroughputBenchmark {
             } else {
                 for (int i = 0; i < count; i++) {
                     try {
-                        queue.offer(name + i);
+                        queue.offer(elements.apply(i));
                     } catch (Exception e) {
                         e.printStackTrace();
                     }
                 }
             }
+            allocatedBytes.add(AllocationMeter.currentThreadAllocatedBytes() - allocated);
+            producerFinish.accumulate(System.nanoTime());
             finishCountDownLatch.countDown();
         }
     }
@@ -210,6 +288,7 @@ public class ConcurrentLinkedQueueThroughputBenchmark {
             } catch (InterruptedException e) {
                 e.printStackTrace();
             }
+            long allocated = AllocationMeter.currentThreadAllocatedBytes();
             int count = testCase.elementCount / testCase.getConsumerCount();
 
             if (testCase.mode != Mode.ProducerAndConsumerShareThread) {
@@ -221,6 +300,8 @@ public class ConcurrentLinkedQueueThroughputBenchmark {
                     }
                 }
             }
+            allocatedBytes.add(AllocationMeter.currentThreadAllocatedBytes() - allocated);
+            consumerFinish.accumulate(System.nanoTime());
             finishCountDownLatch.countDown();
         }
     }
@@ -233,5 +314,15 @@ public class ConcurrentLinkedQueueThroughputBenchmark {
         private Mode mode;
         private int producerCount;
         private int consumerCount;
+        private Payload payload = Payload.Allocating;
+
+        public TestCase(int elementCount, Mode mode, int producerCount, int consumerCount) {
+            this(elementCount, mode, producerCount, consumerCount, Payload.Allocating);
+        }
+
+        // Every producer puts elementCount / producerCount elements
+        public long elements() {
+            return (long) (elementCount / producerCount) * producerCount;
+        }
     }
 }
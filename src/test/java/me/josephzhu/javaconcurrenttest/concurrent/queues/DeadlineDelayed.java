@@ -0,0 +1,37 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delayed with the deadline read from System.nanoTime() once, at construction. compareTo only compares the
+ * stored deadlines with Long.compare, so sifting the DelayQueue heap neither reads the clock nor overflows the
+ * way subtracting two delays and casting to int does.
+ */
+public abstract class DeadlineDelayed implements Delayed {
+
+    private final long deadline;
+
+    protected DeadlineDelayed(long delay, TimeUnit unit) {
+        this.deadline = System.nanoTime() + unit.toNanos(delay);
+    }
+
+    // Deadline in System.nanoTime()
+    public long getDeadline() {
+        return deadline;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+        if (o == this)
+            return 0;
+        if (o instanceof DeadlineDelayed)
+            return Long.compare(deadline, ((DeadlineDelayed) o).deadline);
+        return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+    }
+}
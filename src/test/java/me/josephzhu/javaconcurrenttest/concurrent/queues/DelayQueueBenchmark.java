@@ -0,0 +1,109 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import lombok.extern.slf4j.Slf4j;
+import me.josephzhu.javaconcurrenttest.benchmark.BenchmarkReport;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Inserts -Ddelay.counts messages with random delays of up to -Ddelay.maxDelayMillis into a DelayQueue, waits
+ * until all of them are due and drains the queue, comparing the CPU time per heap operation of the old
+ * DelayQueueTest message (clock read on every comparison) with a DeadlineDelayed one.
+ */
+@Slf4j
+public class DelayQueueBenchmark {
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    int maxDelayMillis = Integer.getInteger("delay.maxDelayMillis", 1000);
+
+    @Test
+    public void test() throws InterruptedException {
+        List<Integer> counts = Arrays.stream(System.getProperty("delay.counts", "1000000,5000000").split(","))
+                .map(String::trim).map(Integer::valueOf).collect(Collectors.toList());
+
+        BenchmarkReport report = new BenchmarkReport("delay-queue");
+        for (int count : counts) {
+            System.gc();
+            report.add(benchmark("ClockMessage", ClockMessage::new, count));
+            System.gc();
+            report.add(benchmark("DeadlineMessage", DeadlineMessage::new, count));
+        }
+        report.write();
+    }
+
+    private Map<String, Object> benchmark(String name, LongFunction<Delayed> message, int count) throws InterruptedException {
+        log.info("Begin message:[{}], elements:{}", name, count);
+        DelayQueue<Delayed> delayQueue = new DelayQueue<>();
+
+        long cpuBegin = threadMXBean.getCurrentThreadCpuTime();
+        long begin = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            delayQueue.put(message.apply(ThreadLocalRandom.current().nextLong(maxDelayMillis + 1)));
+        }
+        long insertNanos = System.nanoTime() - begin;
+        long insertCpuNanos = threadMXBean.getCurrentThreadCpuTime() - cpuBegin;
+
+        // Everything is due after maxDelayMillis, so the drain below never waits
+        TimeUnit.MILLISECONDS.sleep(maxDelayMillis + 10);
+        int drained = 0;
+        cpuBegin = threadMXBean.getCurrentThreadCpuTime();
+        begin = System.nanoTime();
+        while (delayQueue.poll() != null) {
+            drained++;
+        }
+        long drainNanos = System.nanoTime() - begin;
+        long drainCpuNanos = threadMXBean.getCurrentThreadCpuTime() - cpuBegin;
+        if (drained != count)
+            log.warn("Message:[{}] drained {} of {}", name, drained, count);
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("message", name);
+        row.put("elements", count);
+        row.put("insertNanosPerOp", insertNanos / count);
+        row.put("insertCpuNanosPerOp", insertCpuNanos / count);
+        row.put("drainNanosPerOp", drainNanos / count);
+        row.put("drainCpuNanosPerOp", drainCpuNanos / count);
+        log.info("Finish message:[{}], result:{}", name, row);
+        return row;
+    }
+
+    /**
+     * The message DelayQueueTest used to have: getDelay reads the clock and compareTo subtracts two delays.
+     */
+    private static final class ClockMessage implements Delayed {
+        private final long expire;
+
+        ClockMessage(long delay) {
+            expire = System.currentTimeMillis() + delay;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(this.expire - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return (int) (this.getDelay(TimeUnit.MILLISECONDS) - o.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private static final class DeadlineMessage extends DeadlineDelayed {
+        DeadlineMessage(long delay) {
+            super(delay, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -3,10 +3,12 @@ package me.josephzhu.javaconcurrenttest.concurrent.queues;
 
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.PriorityQueue;
 import java.util.concurrent.DelayQueue;
-import java.util.concurrent.Delayed;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
@@ -33,26 +35,29 @@ public class DelayQueueTest {
     }
 
 
+    @Test
+    public void longDelays() {
+        // 30 days in milliseconds doesn't fit into an int, subtracting delays and casting got this order wrong
+        PriorityQueue<Message> queue = new PriorityQueue<>();
+        long[] delays = {TimeUnit.DAYS.toMillis(30), 1000, TimeUnit.DAYS.toMillis(25), 0};
+        for (long delay : delays) {
+            queue.add(new Message(delay));
+        }
+        long[] sorted = delays.clone();
+        Arrays.sort(sorted);
+        for (long delay : sorted) {
+            Assert.assertEquals(delay, queue.poll().delay);
+        }
+    }
+
     @ToString
-    class Message implements Delayed {
+    class Message extends DeadlineDelayed {
 
         private final long delay;
-        private final long expire;
 
         public Message(long delay) {
+            super(delay, TimeUnit.MILLISECONDS);
             this.delay = delay;
-            expire = System.currentTimeMillis() + delay;
-        }
-
-        @Override
-        public long getDelay(TimeUnit unit) {
-            //log.debug("getDelay called : {}", unit);
-            return unit.convert(this.expire - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
-        }
-
-        @Override
-        public int compareTo(Delayed o) {
-            return (int) (this.getDelay(TimeUnit.MILLISECONDS) - o.getDelay(TimeUnit.MILLISECONDS));
         }
     }
 }
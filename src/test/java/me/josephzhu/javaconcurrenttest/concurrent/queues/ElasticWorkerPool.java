@@ -0,0 +1,278 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import lombok.extern.slf4j.Slf4j;
+import me.josephzhu.javaconcurrenttest.concurrent.executors.ThreadFactoryImpl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Consumer threads for a bounded queue, the reusable version of the Producer/Consumer/Worker demos.
+ * <p>
+ * Scaling: a worker is added (up to maxWorkers) when the backlog is above backlogPerWorker per worker or a
+ * worker dequeues an element that waited longer than maxLag. A worker that finds the queue empty for keepAlive,
+ * or spent more than half of the last keepAlive waiting, retires (down to minWorkers).
+ * <p>
+ * Shutdown: new elements are rejected and one shutdown marker per worker is queued behind the backlog, so
+ * every worker drains what is in front of its marker and then quits. Nobody checks a flag and sleeps or polls
+ * for a second to find out whether the queue is empty, which is what Consumer and Consumer2 got wrong.
+ */
+@Slf4j
+public class ElasticWorkerPool<E> {
+
+    private static final Object SHUTDOWN = new Object();
+
+    private final String name;
+    private final BlockingQueue<Object> queue;
+    private final Consumer<? super E> handler;
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final long keepAliveNanos;
+    private final int backlogPerWorker;
+    private final long maxLagNanos;
+    private final ThreadFactory threadFactory;
+    // Read lock for submitting, write lock for shutdown, so no element can be queued behind the markers
+    private final ReentrantReadWriteLock shutdownLock = new ReentrantReadWriteLock();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dequeued = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder lagNanos = new LongAdder();
+    private final LongAccumulator maxLagNanosSeen = new LongAccumulator(Math::max, 0);
+    private final LongAdder workersStarted = new LongAdder();
+    private final LongAdder workersRetired = new LongAdder();
+    private final LongAccumulator peakWorkers = new LongAccumulator(Math::max, 0);
+
+    // Written under this
+    private volatile int workers;
+    private volatile boolean shutdown;
+
+    public ElasticWorkerPool(String name, int capacity, int minWorkers, int maxWorkers, Consumer<? super E> handler) {
+        this(name, capacity, minWorkers, maxWorkers, 1, TimeUnit.SECONDS, 100, 10, TimeUnit.MILLISECONDS, handler);
+    }
+
+    public ElasticWorkerPool(String name, int capacity, int minWorkers, int maxWorkers,
+                             long keepAlive, TimeUnit keepAliveUnit, int backlogPerWorker,
+                             long maxLag, TimeUnit maxLagUnit, Consumer<? super E> handler) {
+        if (minWorkers < 1 || maxWorkers < minWorkers || backlogPerWorker < 1)
+            throw new IllegalArgumentException("minWorkers:" + minWorkers + ", maxWorkers:" + maxWorkers + ", backlogPerWorker:" + backlogPerWorker);
+        this.name = name;
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.handler = handler;
+        this.minWorkers = minWorkers;
+        this.maxWorkers = maxWorkers;
+        this.keepAliveNanos = keepAliveUnit.toNanos(keepAlive);
+        this.backlogPerWorker = backlogPerWorker;
+        this.maxLagNanos = maxLagUnit.toNanos(maxLag);
+        this.threadFactory = new ThreadFactoryImpl(name + "-worker-");
+        for (int i = 0; i < minWorkers; i++) {
+            addWorker();
+        }
+    }
+
+    /**
+     * Blocks while the queue is full. Returns false if the pool is shut down.
+     */
+    public boolean submit(E element) throws InterruptedException {
+        shutdownLock.readLock().lockInterruptibly();
+        try {
+            if (shutdown) {
+                rejected.increment();
+                return false;
+            }
+            queue.put(new Envelope(element));
+        } finally {
+            shutdownLock.readLock().unlock();
+        }
+        submitted.increment();
+        scale(0);
+        return true;
+    }
+
+    /**
+     * Returns false if the queue is full or the pool is shut down.
+     */
+    public boolean offer(E element) {
+        shutdownLock.readLock().lock();
+        try {
+            if (shutdown || !queue.offer(new Envelope(element))) {
+                rejected.increment();
+                return false;
+            }
+        } finally {
+            shutdownLock.readLock().unlock();
+        }
+        submitted.increment();
+        scale(0);
+        return true;
+    }
+
+    /**
+     * Stops accepting elements. Workers finish everything queued so far and then quit.
+     */
+    public void shutdown() throws InterruptedException {
+        shutdownLock.writeLock().lockInterruptibly();
+        try {
+            if (shutdown)
+                return;
+            int markers;
+            synchronized (this) {
+                shutdown = true;
+                markers = workers;
+            }
+            // Outside the monitor, which workers need to scale and exit while they drain a full queue. Once
+            // shutdown is set no worker starts or retires, so the count stays right
+            for (int i = 0; i < markers; i++) {
+                queue.put(SHUTDOWN);
+            }
+        } finally {
+            shutdownLock.writeLock().unlock();
+        }
+        log.info("Shutdown {}, backlog:{}", name, getBacklog());
+    }
+
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!shutdown || workers > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                return false;
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public long getBacklog() {
+        return Math.max(0, submitted.sum() - dequeued.sum());
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public Map<String, Object> snapshot() {
+        long completed = this.completed.sum();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("pool", name);
+        snapshot.put("workers", getWorkers());
+        snapshot.put("peakWorkers", peakWorkers.get());
+        snapshot.put("workersStarted", workersStarted.sum());
+        snapshot.put("workersRetired", workersRetired.sum());
+        snapshot.put("backlog", getBacklog());
+        snapshot.put("submitted", submitted.sum());
+        snapshot.put("rejected", rejected.sum());
+        snapshot.put("completed", completed);
+        snapshot.put("failed", failed.sum());
+        snapshot.put("avgLagNanos", completed == 0 ? 0 : lagNanos.sum() / completed);
+        snapshot.put("maxLagNanos", maxLagNanosSeen.get());
+        return snapshot;
+    }
+
+    private void scale(long lag) {
+        int backlog = queue.size();
+        int workers = this.workers;
+        if (workers < maxWorkers && (backlog > workers * backlogPerWorker || lag > maxLagNanos))
+            addWorker();
+    }
+
+    private synchronized void addWorker() {
+        if (shutdown || workers >= maxWorkers)
+            return;
+        workers++;
+        workersStarted.increment();
+        peakWorkers.accumulate(workers);
+        threadFactory.newThread(this::work).start();
+    }
+
+    private synchronized boolean retire() {
+        if (shutdown || workers <= minWorkers)
+            return false;
+        exited();
+        return true;
+    }
+
+    private synchronized void exited() {
+        workers--;
+        workersRetired.increment();
+        notifyAll();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void work() {
+        long windowStart = System.nanoTime();
+        long idleNanos = 0;
+        try {
+            while (true) {
+                long waitStart = System.nanoTime();
+                Object element = queue.poll(keepAliveNanos, TimeUnit.NANOSECONDS);
+                long now = System.nanoTime();
+                idleNanos += now - waitStart;
+                if (element == null) {
+                    if (retire())
+                        return;
+                    continue;
+                }
+                if (element == SHUTDOWN)
+                    break;
+                // With many workers a light load is spread over all of them and none is idle for a whole
+                // keepAlive, so also retire a worker that waited for more than half of the last keepAlive
+                boolean underused = false;
+                if (now - windowStart >= keepAliveNanos) {
+                    underused = idleNanos * 2 > now - windowStart;
+                    windowStart = now;
+                    idleNanos = 0;
+                }
+                Envelope envelope = (Envelope) element;
+                dequeued.increment();
+                long lag = now - envelope.enqueued;
+                lagNanos.add(lag);
+                maxLagNanosSeen.accumulate(lag);
+                scale(lag);
+                try {
+                    handler.accept((E) envelope.element);
+                    completed.increment();
+                } catch (Throwable e) {
+                    failed.increment();
+                    log.warn("{} failed to handle {}", name, envelope.element, e);
+                }
+                if (underused && queue.isEmpty() && retire())
+                    return;
+            }
+        } catch (InterruptedException e) {
+            log.warn("{} interrupted", Thread.currentThread().getName());
+        }
+        exited();
+    }
+
+    private static final class Envelope {
+        private final Object element;
+        private final long enqueued = System.nanoTime();
+
+        Envelope(Object element) {
+            this.element = element;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+}
@@ -0,0 +1,106 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import lombok.extern.slf4j.Slf4j;
+import me.josephzhu.javaconcurrenttest.benchmark.BenchmarkReport;
+import me.josephzhu.javaconcurrenttest.benchmark.LatencyHistogram;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bursty open-loop load: -Dpool.cycles cycles of -Dpool.burstMillis at -Dpool.burstRate elements/s followed by
+ * -Dpool.quietMillis at -Dpool.quietRate. Every element takes -Dpool.workMicros of blocking work (like an IO
+ * call), so throughput depends on the number of workers. Compares the elastic pool with fixed pools of
+ * min and max workers: latency from the intended send time, worker usage, and how long the drain on shutdown takes.
+ */
+@Slf4j
+public class ElasticWorkerPoolBenchmark {
+
+    int minWorkers = Integer.getInteger("pool.min", 2);
+    int maxWorkers = Integer.getInteger("pool.max", 32);
+    int capacity = Integer.getInteger("pool.capacity", 100000);
+    int workMicros = Integer.getInteger("pool.workMicros", 1000);
+    int burstRate = Integer.getInteger("pool.burstRate", 10000);
+    int quietRate = Integer.getInteger("pool.quietRate", 500);
+    int burstMillis = Integer.getInteger("pool.burstMillis", 200);
+    int quietMillis = Integer.getInteger("pool.quietMillis", 1800);
+    int cycles = Integer.getInteger("pool.cycles", 5);
+
+    @Test
+    public void test() throws InterruptedException {
+        BenchmarkReport report = new BenchmarkReport("elastic-worker-pool");
+        report.add(benchmark("Fixed(" + minWorkers + ")", minWorkers, minWorkers));
+        report.add(benchmark("Elastic(" + minWorkers + "-" + maxWorkers + ")", minWorkers, maxWorkers));
+        report.add(benchmark("Fixed(" + maxWorkers + ")", maxWorkers, maxWorkers));
+        report.write();
+    }
+
+    private Map<String, Object> benchmark(String name, int min, int max) throws InterruptedException {
+        log.info("Begin pool:[{}]", name);
+        System.gc();
+        LatencyHistogram latency = new LatencyHistogram();
+        long workNanos = TimeUnit.MICROSECONDS.toNanos(workMicros);
+        ElasticWorkerPool<Long> pool = new ElasticWorkerPool<>(name, capacity, min, max, intended -> {
+            LockSupport.parkNanos(workNanos);
+            long now = System.nanoTime();
+            synchronized (latency) {
+                latency.record(now - intended);
+            }
+        });
+
+        long workerSamples = 0;
+        long workerSum = 0;
+        long maxBacklog = 0;
+        long sampleInterval = TimeUnit.MILLISECONDS.toNanos(10);
+        long nextSample = System.nanoTime();
+        long start = System.nanoTime();
+        long intended = start;
+        for (int cycle = 0; cycle < cycles; cycle++) {
+            for (int phase = 0; phase < 2; phase++) {
+                long interval = 1000000000L / (phase == 0 ? burstRate : quietRate);
+                long end = intended + TimeUnit.MILLISECONDS.toNanos(phase == 0 ? burstMillis : quietMillis);
+                for (; intended < end; intended += interval) {
+                    long now;
+                    while ((now = System.nanoTime()) < intended) {
+                        if (intended - now > 100000)
+                            LockSupport.parkNanos(intended - now - 50000);
+                        else
+                            Thread.yield();
+                    }
+                    if (now >= nextSample) {
+                        workerSamples++;
+                        workerSum += pool.getWorkers();
+                        maxBacklog = Math.max(maxBacklog, pool.getBacklog());
+                        nextSample = now + sampleInterval;
+                    }
+                    pool.submit(intended);
+                }
+            }
+        }
+        long produced = System.nanoTime();
+        long backlogAtShutdown = pool.getBacklog();
+        pool.shutdown();
+        if (!pool.awaitTermination(1, TimeUnit.MINUTES))
+            log.warn("Pool:[{}] didn't drain in a minute, {}", name, pool);
+        long drained = System.nanoTime();
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("pool", name);
+        row.put("elements", pool.getCompleted());
+        row.put("opsPerSecond", pool.getCompleted() * 1000000000L / Math.max(1, drained - start));
+        row.put("avgWorkers", workerSamples == 0 ? 0 : (double) workerSum / workerSamples);
+        row.put("maxBacklog", maxBacklog);
+        row.put("backlogAtShutdown", backlogAtShutdown);
+        row.put("drainMillis", TimeUnit.NANOSECONDS.toMillis(drained - produced));
+        row.putAll(latency.summary("latency"));
+        Map<String, Object> snapshot = pool.snapshot();
+        row.put("peakWorkers", snapshot.get("peakWorkers"));
+        row.put("workersStarted", snapshot.get("workersStarted"));
+        row.put("workersRetired", snapshot.get("workersRetired"));
+        log.info("Finish pool:[{}], result:{}", name, row);
+        return row;
+    }
+}
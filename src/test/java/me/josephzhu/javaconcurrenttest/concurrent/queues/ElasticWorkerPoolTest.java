@@ -0,0 +1,108 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Slf4j
+public class ElasticWorkerPoolTest {
+
+    @Test
+    public void drainOnShutdown() throws InterruptedException {
+        AtomicInteger handled = new AtomicInteger();
+        ElasticWorkerPool<Integer> pool = new ElasticWorkerPool<>("test", 1000, 1, 8,
+                100, TimeUnit.MILLISECONDS, 10, 5, TimeUnit.MILLISECONDS, i -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.incrementAndGet();
+        });
+        for (int i = 0; i < 500; i++) {
+            Assert.assertTrue(pool.submit(i));
+        }
+        pool.shutdown();
+        Assert.assertFalse(pool.submit(500));
+        Assert.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        log.info("{}", pool);
+        Assert.assertEquals(500, handled.get());
+        Assert.assertEquals(0, pool.getWorkers());
+        Assert.assertEquals(0, pool.getBacklog());
+        Assert.assertTrue((long) pool.snapshot().get("peakWorkers") > 1);
+    }
+
+    @Test
+    public void scaleDown() throws InterruptedException {
+        ElasticWorkerPool<Integer> pool = new ElasticWorkerPool<>("test", 1000, 1, 4,
+                50, TimeUnit.MILLISECONDS, 1, 1, TimeUnit.MILLISECONDS, i -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (int i = 0; i < 100; i++) {
+            pool.submit(i);
+        }
+        Assert.assertTrue(pool.getWorkers() > 1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pool.getWorkers() > 1 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        Assert.assertEquals(1, pool.getWorkers());
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * The queue is full when shutdown starts and one handler submits while shutdown holds the write lock.
+     * The other workers must still be able to scale, drain the queue and take their markers.
+     */
+    @Test
+    public void shutdownWithFullQueue() throws InterruptedException {
+        AtomicInteger handled = new AtomicInteger();
+        AtomicBoolean resubmitted = new AtomicBoolean(true);
+        AtomicReference<ElasticWorkerPool<Integer>> holder = new AtomicReference<>();
+        ElasticWorkerPool<Integer> pool = new ElasticWorkerPool<>("test", 2, 2, 100,
+                1, TimeUnit.SECONDS, 1, 0, TimeUnit.NANOSECONDS, i -> {
+            try {
+                if (i == 0) {
+                    while (!holder.get().isShutdown()) {
+                        TimeUnit.MILLISECONDS.sleep(1);
+                    }
+                    resubmitted.set(holder.get().submit(-1));
+                } else {
+                    TimeUnit.MILLISECONDS.sleep(5);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.incrementAndGet();
+        });
+        holder.set(pool);
+        for (int i = 0; i < 20; i++) {
+            Assert.assertTrue(pool.submit(i));
+        }
+        Thread shutdown = new Thread(() -> {
+            try {
+                pool.shutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        shutdown.start();
+        shutdown.join(TimeUnit.SECONDS.toMillis(5));
+        Assert.assertFalse("shutdown deadlocked", shutdown.isAlive());
+        Assert.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        log.info("{}", pool);
+        Assert.assertEquals(20, handled.get());
+        Assert.assertFalse(resubmitted.get());
+        Assert.assertEquals(0, pool.getWorkers());
+    }
+}
@@ -0,0 +1,151 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import lombok.extern.slf4j.Slf4j;
+import me.josephzhu.javaconcurrenttest.benchmark.BenchmarkReport;
+import me.josephzhu.javaconcurrenttest.benchmark.LatencyHistogram;
+import me.josephzhu.javaconcurrenttest.util.SpinWait;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Exchanger;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Hands -Dhandoff.count messages from producer to consumer threads through each synchronous hand-off, with
+ * -Dhandoff.pairs producer/consumer pairs of dedicated threads, so the numbers don't include submitting a task
+ * per message the way LinkedTransferQueueTest does. Every message is the System.nanoTime() it was handed off
+ * at, latency is measured when the consumer gets it.
+ */
+@Slf4j
+public class HandOffBenchmark {
+
+    int count = Integer.getInteger("handoff.count", 1000000);
+    WaitStrategy waitStrategy = WaitStrategy.of(System.getProperty("handoff.waitStrategy", "yielding"));
+
+    @Test
+    public void test() throws InterruptedException {
+        List<Integer> pairs = Arrays.stream(System.getProperty("handoff.pairs", "1,4").split(","))
+                .map(String::trim).map(Integer::valueOf).collect(Collectors.toList());
+
+        Map<String, Supplier<HandOff>> handOffs = new LinkedHashMap<>();
+        handOffs.put("SynchronousQueue(unfair)", () -> queue(new SynchronousQueue<>(false)));
+        handOffs.put("SynchronousQueue(fair)", () -> queue(new SynchronousQueue<>(true)));
+        handOffs.put("LinkedTransferQueue.transfer", () -> {
+            LinkedTransferQueue<Long> queue = new LinkedTransferQueue<>();
+            return new HandOff(queue::transfer, queue::take);
+        });
+        handOffs.put("LinkedTransferQueue.tryTransfer", () -> {
+            LinkedTransferQueue<Long> queue = new LinkedTransferQueue<>();
+            return new HandOff(message -> {
+                // tryTransfer only succeeds if a consumer is already waiting
+                while (!queue.tryTransfer(message)) {
+                    SpinWait.onSpinWait();
+                }
+            }, queue::take);
+        });
+        handOffs.put("Exchanger", () -> {
+            Exchanger<Long> exchanger = new Exchanger<>();
+            return new HandOff(exchanger::exchange, () -> exchanger.exchange(null));
+        });
+        handOffs.put("RendezvousSlot(" + waitStrategy + ")", () -> {
+            RendezvousSlot<Long> slot = new RendezvousSlot<>(waitStrategy);
+            return new HandOff(slot::transfer, slot::take);
+        });
+
+        BenchmarkReport report = new BenchmarkReport("hand-off");
+        for (int pairCount : pairs) {
+            for (Map.Entry<String, Supplier<HandOff>> handOff : handOffs.entrySet()) {
+                // An Exchanger pairs up any two threads, with several producers they'd exchange with each other
+                if (handOff.getKey().equals("Exchanger") && pairCount > 1)
+                    continue;
+                System.gc();
+                report.add(benchmark(handOff.getKey(), handOff.getValue().get(), pairCount));
+            }
+        }
+        report.write();
+    }
+
+    private static HandOff queue(SynchronousQueue<Long> queue) {
+        return new HandOff(queue::put, queue::take);
+    }
+
+    private Map<String, Object> benchmark(String name, HandOff handOff, int pairCount) throws InterruptedException {
+        log.info("Begin hand-off:[{}], pairs:{}, count:{}", name, pairCount, count);
+        int perThread = count / pairCount;
+        LatencyHistogram latency = new LatencyHistogram();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < pairCount; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < perThread; j++) {
+                        handOff.give.give(System.nanoTime());
+                    }
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }, "producer-" + i));
+            threads.add(new Thread(() -> {
+                LatencyHistogram histogram = new LatencyHistogram();
+                try {
+                    start.await();
+                    for (int j = 0; j < perThread; j++) {
+                        Long sent = handOff.take.take();
+                        histogram.record(System.nanoTime() - sent);
+                    }
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                synchronized (latency) {
+                    latency.add(histogram);
+                }
+            }, "consumer-" + i));
+        }
+        threads.forEach(Thread::start);
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("handOff", name);
+        row.put("pairs", pairCount);
+        row.put("handOffs", latency.getTotalCount());
+        row.put("handOffsPerSecond", latency.getTotalCount() * 1000000000L / Math.max(1, elapsed));
+        row.put("nanosPerHandOff", elapsed / Math.max(1, latency.getTotalCount()));
+        row.putAll(latency.summary("latency"));
+        log.info("Finish hand-off:[{}], result:{}", name, row);
+        return row;
+    }
+
+    @FunctionalInterface
+    private interface Give {
+        void give(Long message) throws InterruptedException;
+    }
+
+    @FunctionalInterface
+    private interface Take {
+        Long take() throws InterruptedException;
+    }
+
+    private static final class HandOff {
+        private final Give give;
+        private final Take take;
+
+        HandOff(Give give, Take take) {
+            this.give = give;
+            this.take = take;
+        }
+    }
+}
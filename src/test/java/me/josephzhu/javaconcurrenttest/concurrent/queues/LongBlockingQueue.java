@@ -0,0 +1,175 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ArrayBlockingQueue for primitive longs: the same single lock with notEmpty/notFull conditions, but the
+ * elements live in a long[] so nothing is boxed and the footprint is 8 bytes per slot.
+ * The non-blocking poll methods return valueIfEmpty because there is no null to signal an empty queue.
+ */
+public class LongBlockingQueue {
+
+    private final long[] items;
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final Condition notFull;
+    private int takeIndex;
+    private int putIndex;
+    private int count;
+
+    public LongBlockingQueue(int capacity) {
+        this(capacity, false);
+    }
+
+    public LongBlockingQueue(int capacity, boolean fair) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity:" + capacity);
+        this.items = new long[capacity];
+        this.lock = new ReentrantLock(fair);
+        this.notEmpty = lock.newCondition();
+        this.notFull = lock.newCondition();
+    }
+
+    private void enqueue(long value) {
+        items[putIndex] = value;
+        if (++putIndex == items.length)
+            putIndex = 0;
+        count++;
+        notEmpty.signal();
+    }
+
+    private long dequeue() {
+        long value = items[takeIndex];
+        if (++takeIndex == items.length)
+            takeIndex = 0;
+        count--;
+        notFull.signal();
+        return value;
+    }
+
+    public boolean offer(long value) {
+        lock.lock();
+        try {
+            if (count == items.length)
+                return false;
+            enqueue(value);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(long value) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == items.length) {
+                notFull.await();
+            }
+            enqueue(value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean offer(long value, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == items.length) {
+                if (nanos <= 0)
+                    return false;
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(value);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long poll(long valueIfEmpty) {
+        lock.lock();
+        try {
+            return count == 0 ? valueIfEmpty : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long poll(long timeout, TimeUnit unit, long valueIfEmpty) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0)
+                    return valueIfEmpty;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves up to target.length values into target under one lock acquisition.
+     */
+    public int drainTo(long[] target) {
+        lock.lock();
+        try {
+            int n = Math.min(count, target.length);
+            for (int i = 0; i < n; i++) {
+                target[i] = items[takeIndex];
+                if (++takeIndex == items.length)
+                    takeIndex = 0;
+            }
+            count -= n;
+            if (n > 0)
+                notFull.signalAll();
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return items.length - count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacity() {
+        return items.length;
+    }
+
+    @Override
+    public String toString() {
+        return "LongBlockingQueue[capacity=" + items.length + ", size=" + size() + "]";
+    }
+}
@@ -0,0 +1,300 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Puts a byte budget in front of a (usually unbounded) BlockingQueue. Every element is charged what the
+ * {@link SizeEstimator} says it retains and admitted only while the total stays within maxBytes; an element
+ * larger than the whole budget is still admitted into an empty queue so it can't block forever.
+ * When the budget is used up offer() returns false, and put() either waits (BLOCK) or throws
+ * RejectedExecutionException (REJECT) so the caller sheds load instead of piling up on the heap.
+ */
+public class MemoryBoundedBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    public enum Policy {
+        BLOCK,
+        REJECT
+    }
+
+    private final BlockingQueue<E> delegate;
+    private final SizeEstimator<? super E> sizeEstimator;
+    private final long maxBytes;
+    private final Policy policy;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    // Written under lock
+    private volatile long usedBytes;
+
+    private final LongAccumulator peakBytes = new LongAccumulator(Math::max, 0);
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+
+    public MemoryBoundedBlockingQueue(BlockingQueue<E> delegate, SizeEstimator<? super E> sizeEstimator, long maxBytes, Policy policy) {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("maxBytes:" + maxBytes);
+        this.delegate = delegate;
+        this.sizeEstimator = sizeEstimator;
+        this.maxBytes = maxBytes;
+        this.policy = policy;
+    }
+
+    private boolean fits(long bytes) {
+        return usedBytes == 0 || usedBytes + bytes <= maxBytes;
+    }
+
+    private void charge(long bytes) {
+        usedBytes += bytes;
+        peakBytes.accumulate(usedBytes);
+        admitted.increment();
+    }
+
+    private void release(long bytes) {
+        lock.lock();
+        try {
+            usedBytes -= bytes;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private E released(E e) {
+        if (e != null)
+            release(sizeEstimator.estimate(e));
+        return e;
+    }
+
+    // The element was charged but never made it into the delegate
+    private void refund(long bytes) {
+        release(bytes);
+        admitted.decrement();
+    }
+
+    // The delegate may be bounded too, so give the bytes back if it refuses the element
+    private boolean enqueue(E e, long bytes) {
+        if (delegate.offer(e))
+            return true;
+        refund(bytes);
+        rejected.increment();
+        return false;
+    }
+
+    // Estimate only non-null elements, the bytes of a null would be charged and never released
+    private long estimate(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        return sizeEstimator.estimate(e);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        long bytes = estimate(e);
+        lock.lock();
+        try {
+            if (!fits(bytes)) {
+                rejected.increment();
+                return false;
+            }
+            charge(bytes);
+        } finally {
+            lock.unlock();
+        }
+        return enqueue(e, bytes);
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        long bytes = estimate(e);
+        lock.lockInterruptibly();
+        try {
+            if (!fits(bytes)) {
+                if (policy == Policy.REJECT) {
+                    rejected.increment();
+                    throw new RejectedExecutionException("Queue is using " + usedBytes + " of " + maxBytes + " bytes, element needs " + bytes);
+                }
+                blocked.increment();
+                while (!fits(bytes)) {
+                    notFull.await();
+                }
+            }
+            charge(bytes);
+        } finally {
+            lock.unlock();
+        }
+        if (policy == Policy.REJECT) {
+            if (!enqueue(e, bytes))
+                throw new RejectedExecutionException("Delegate queue is full");
+            return;
+        }
+        // A bounded delegate that is full blocks like any other put()
+        try {
+            delegate.put(e);
+        } catch (InterruptedException ex) {
+            refund(bytes);
+            throw ex;
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long bytes = estimate(e);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            if (!fits(bytes)) {
+                if (policy == Policy.BLOCK)
+                    blocked.increment();
+                while (!fits(bytes)) {
+                    if (policy == Policy.REJECT || nanos <= 0) {
+                        rejected.increment();
+                        return false;
+                    }
+                    nanos = notFull.awaitNanos(nanos);
+                }
+            }
+            charge(bytes);
+        } finally {
+            lock.unlock();
+        }
+        if (policy == Policy.REJECT)
+            return enqueue(e, bytes);
+        // Whatever is left of the timeout after waiting for the budget goes to the delegate
+        boolean offered;
+        try {
+            offered = delegate.offer(e, nanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            refund(bytes);
+            throw ex;
+        }
+        if (!offered) {
+            refund(bytes);
+            rejected.increment();
+        }
+        return offered;
+    }
+
+    @Override
+    public E poll() {
+        return released(delegate.poll());
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        return released(delegate.take());
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return released(delegate.poll(timeout, unit));
+    }
+
+    @Override
+    public E peek() {
+        return delegate.peek();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) {
+        if (!delegate.remove(o))
+            return false;
+        release(sizeEstimator.estimate((E) o));
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return usedBytes >= maxBytes ? 0 : delegate.remainingCapacity();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == this)
+            throw new IllegalArgumentException();
+        int count = 0;
+        E e;
+        while (count < maxElements && (e = poll()) != null) {
+            c.add(e);
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        Iterator<E> iterator = delegate.iterator();
+        return new Iterator<E>() {
+            private E last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return last = iterator.next();
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+                release(sizeEstimator.estimate(last));
+            }
+        };
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getPeakBytes() {
+        return peakBytes.get();
+    }
+
+    public Map<String, Object> snapshot() {
+        long usedBytes = this.usedBytes;
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("policy", policy);
+        snapshot.put("size", size());
+        snapshot.put("usedBytes", usedBytes);
+        snapshot.put("maxBytes", maxBytes);
+        snapshot.put("occupancyPercent", usedBytes * 100 / maxBytes);
+        snapshot.put("peakBytes", peakBytes.get());
+        snapshot.put("admitted", admitted.sum());
+        snapshot.put("rejected", rejected.sum());
+        snapshot.put("blocked", blocked.sum());
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryBoundedBlockingQueue" + snapshot();
+    }
+}
@@ -0,0 +1,95 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free multi-producer multi-consumer queue (Dmitry Vyukov's design). Every slot carries a
+ * sequence: a producer may fill slot pos when its sequence is pos, a consumer may empty it when it is pos + 1.
+ * Producers and consumers only compete on their own index with a CAS and never allocate.
+ */
+public class MpmcArrayQueue<E> extends AbstractRingQueue<E> {
+
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+
+    public MpmcArrayQueue(int capacity) {
+        this(capacity, WaitStrategy.yielding());
+    }
+
+    public MpmcArrayQueue(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+        buffer = new Object[this.capacity];
+        sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        long pos = producerIndex.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (producerIndex.compareAndSet(pos, pos + 1)) {
+                    buffer[index] = e;
+                    sequences.lazySet(index, pos + 1);
+                    waitStrategy.signalAll();
+                    return true;
+                }
+                pos = producerIndex.get();
+            } else if (diff < 0) {
+                // The slot still holds the element of the previous lap
+                return false;
+            } else {
+                pos = producerIndex.get();
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long pos = consumerIndex.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (consumerIndex.compareAndSet(pos, pos + 1)) {
+                    E e = (E) buffer[index];
+                    buffer[index] = null;
+                    sequences.lazySet(index, pos + capacity);
+                    waitStrategy.signalAll();
+                    return e;
+                }
+                pos = consumerIndex.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = consumerIndex.get();
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected E elementAt(long pos) {
+        int index = (int) (pos & mask);
+        if (sequences.get(index) != pos + 1)
+            return null;
+        E e = (E) buffer[index];
+        // Still the same lap after the read, otherwise a consumer took it meanwhile
+        return sequences.get(index) == pos + 1 ? e : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        long pos = consumerIndex.get();
+        int index = (int) (pos & mask);
+        return sequences.get(index) == pos + 1 ? (E) buffer[index] : null;
+    }
+}
@@ -0,0 +1,76 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded multi-producer single-consumer queue. Producers claim a slot with a CAS on the producer index and
+ * publish the element with lazySet, the single consumer frees slots without any CAS.
+ * poll/take must only be called by one thread.
+ */
+public class MpscArrayQueue<E> extends AbstractRingQueue<E> {
+
+    private final AtomicReferenceArray<E> buffer;
+
+    public MpscArrayQueue(int capacity) {
+        this(capacity, WaitStrategy.yielding());
+    }
+
+    public MpscArrayQueue(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+        buffer = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        long pos;
+        do {
+            pos = producerIndex.get();
+            if (pos - consumerIndex.get() >= capacity)
+                return false;
+        } while (!producerIndex.compareAndSet(pos, pos + 1));
+        buffer.lazySet((int) (pos & mask), e);
+        waitStrategy.signalAll();
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        long pos = consumerIndex.get();
+        int index = (int) (pos & mask);
+        E e = buffer.get(index);
+        if (e == null) {
+            if (pos == producerIndex.get())
+                return null;
+            // A producer has claimed the slot but not written it yet, it may have been preempted in between
+            while ((e = buffer.get(index)) == null) {
+                Thread.yield();
+            }
+        }
+        buffer.lazySet(index, null);
+        consumerIndex.lazySet(pos + 1);
+        waitStrategy.signalAll();
+        return e;
+    }
+
+    @Override
+    protected E elementAt(long pos) {
+        E e = buffer.get((int) (pos & mask));
+        // Once the consumer is past pos the slot is free or already holds an element of the next lap
+        return consumerIndex.get() <= pos ? e : null;
+    }
+
+    @Override
+    public E peek() {
+        long pos = consumerIndex.get();
+        int index = (int) (pos & mask);
+        E e = buffer.get(index);
+        if (e == null && pos != producerIndex.get()) {
+            while ((e = buffer.get(index)) == null) {
+                Thread.yield();
+            }
+        }
+        return e;
+    }
+}
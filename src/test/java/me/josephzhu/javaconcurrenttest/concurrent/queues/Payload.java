@@ -0,0 +1,25 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import java.util.function.IntFunction;
+
+/**
+ * What producers put into the queue in the throughput benchmarks. Allocating builds a new string per element,
+ * so the numbers include string allocation and GC. Pooled cycles through strings built before the run, so only
+ * the queue itself allocates.
+ */
+enum Payload {
+    Allocating,
+    Pooled;
+
+    private static final int POOL_SIZE = 1024;
+
+    IntFunction<String> elements(String name) {
+        if (this == Allocating)
+            return i -> name + i;
+        String[] pool = new String[POOL_SIZE];
+        for (int i = 0; i < POOL_SIZE; i++) {
+            pool[i] = name + i;
+        }
+        return i -> pool[i & (POOL_SIZE - 1)];
+    }
+}
@@ -15,8 +15,8 @@ import java.util.stream.IntStream;
 @Slf4j
 public class QueueBenchmark {
 
-    int taskCount = 10000000;
-    int threadCount = 1000;
+    int taskCount = Integer.getInteger("queue.taskCount", 10000000);
+    int threadCount = Integer.getInteger("queue.threadCount", 1000);
 
     @Test
     public void test() throws InterruptedException {
@@ -39,6 +39,7 @@ public class QueueBenchmark {
                 new ArrayBlockingQueue<>(taskCount, false),
                 new LinkedTransferQueue<>(),
                 new PriorityBlockingQueue<>(),
+                new SkipListPriorityQueue<>(),
                 new LinkedList<>());
     }
 
@@ -1,19 +1,43 @@
 package me.josephzhu.javaconcurrenttest.concurrent.queues;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import me.josephzhu.javaconcurrenttest.benchmark.AllocationMeter;
+import me.josephzhu.javaconcurrenttest.benchmark.BenchmarkReport;
+import me.josephzhu.javaconcurrenttest.benchmark.LatencyHistogram;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
-
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Durations are measured from releasing the start latch, so thread creation is not included. The enqueue rate
+ * runs until the last producer is done, the dequeue rate until the last consumer is done (in
+ * ProducerAndThenConsumer each from the start of its own phase). With recordLatency the elements are the
+ * System.nanoTime() of the put, and consumers record the time until their take.
+ * The soak test is open-loop instead: producers emit at a fixed rate whether or not the queue keeps up.
+ */
 @Slf4j
 public class QueueThroughputBenchmark {
 
-    private final static int element_count = 50000000;
+    private final static int element_count = Integer.getInteger("queue.elementCount", 50000000);
+    private final static int ring_capacity = Integer.getInteger("queue.capacity", 1 << 16);
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAccumulator producerFinish = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator consumerFinish = new LongAccumulator(Math::max, 0);
+    private final LatencyHistogram latency = new LatencyHistogram();
 
     @Test
     public void test() throws InterruptedException {
@@ -40,34 +64,293 @@ public class QueueThroughputBenchmark {
         testCases.add(new TestCase(element_count, Mode.ProducerAndThenConsumer, 1000, 1000));
         testCases.add(new TestCase(element_count, Mode.ProducerAndThenConsumer, Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors()));
 
-        LinkedBlockingQueue<String> linkedBlockingQueue = new LinkedBlockingQueue<>();
+        BenchmarkReport report = new BenchmarkReport("queue-throughput");
+        LinkedBlockingQueue<Object> linkedBlockingQueue = new LinkedBlockingQueue<>();
         for (TestCase testCase : testCases) {
             System.gc();
-            benchmark(linkedBlockingQueue, testCase);
+            add(report, benchmark(linkedBlockingQueue, testCase));
         }
         linkedBlockingQueue = null;
 
-        LinkedTransferQueue<String> linkedTransferQueue = new LinkedTransferQueue<>();
+        LinkedTransferQueue<Object> linkedTransferQueue = new LinkedTransferQueue<>();
         for (TestCase testCase : testCases) {
             System.gc();
-            benchmark(linkedTransferQueue, testCase);
+            add(report, benchmark(linkedTransferQueue, testCase));
         }
         linkedTransferQueue = null;
 
-        ArrayBlockingQueue<String> arrayBlockingQueue = new ArrayBlockingQueue<>(element_count);
+        ArrayBlockingQueue<Object> arrayBlockingQueue = new ArrayBlockingQueue<>(element_count);
         for (TestCase testCase : testCases) {
             System.gc();
-            benchmark(arrayBlockingQueue, testCase);
+            add(report, benchmark(arrayBlockingQueue, testCase));
         }
         arrayBlockingQueue = null;
+
+        MpmcArrayQueue<Object> mpmcArrayQueue = new MpmcArrayQueue<>(ring_capacity,
+                WaitStrategy.of(System.getProperty("queue.waitStrategy", "parking")));
+        for (TestCase testCase : testCases) {
+            System.gc();
+            add(report, benchmark(mpmcArrayQueue, testCase));
+        }
+        report.write();
     }
 
-    private void benchmark(BlockingQueue<String> queue, TestCase testCase) throws InterruptedException {
+    @Test
+    public void latency() throws InterruptedException {
+        List<TestCase> testCases = new ArrayList<>();
+        testCases.add(new TestCase(element_count, Mode.ConcurrentProducerAndConsumer, 1, 1));
+        testCases.add(new TestCase(element_count, Mode.ConcurrentProducerAndConsumer, 10, 10));
+        testCases.add(new TestCase(element_count, Mode.ConcurrentProducerAndConsumer, 100, 1));
+        testCases.forEach(testCase -> testCase.setRecordLatency(true));
+
+        List<BlockingQueue<Object>> queues = new ArrayList<>();
+        queues.add(new LinkedBlockingQueue<>());
+        queues.add(new LinkedTransferQueue<>());
+        queues.add(new ArrayBlockingQueue<>(ring_capacity));
+        queues.add(new MpmcArrayQueue<>(ring_capacity));
+
+        BenchmarkReport report = new BenchmarkReport("queue-latency");
+        for (BlockingQueue<Object> queue : queues) {
+            for (TestCase testCase : testCases) {
+                System.gc();
+                add(report, benchmark(queue, testCase));
+            }
+        }
+        report.write();
+    }
 
-        long begin = System.currentTimeMillis();
+    @Test
+    public void ringBuffer() throws InterruptedException {
+        List<TestCase> testCases = new ArrayList<>();
+        testCases.add(new TestCase(element_count, Mode.ConcurrentProducerAndConsumer, 1, 1));
+        testCases.add(new TestCase(element_count, Mode.ConcurrentProducerAndConsumer, 10, 10));
+        testCases.add(new TestCase(element_count, Mode.ConcurrentProducerAndConsumer, 100, 100));
+
+        List<BlockingQueue<Object>> queues = new ArrayList<>();
+        queues.add(new ArrayBlockingQueue<>(ring_capacity));
+        queues.add(new MpmcArrayQueue<>(ring_capacity, WaitStrategy.spin()));
+        queues.add(new MpmcArrayQueue<>(ring_capacity, WaitStrategy.yielding()));
+        queues.add(new MpmcArrayQueue<>(ring_capacity, WaitStrategy.parking()));
+        BenchmarkReport report = new BenchmarkReport("queue-ring-buffer");
+        for (BlockingQueue<Object> queue : queues) {
+            for (TestCase testCase : testCases) {
+                System.gc();
+                add(report, benchmark(queue, testCase));
+            }
+        }
+        report.write();
+    }
+
+    @Test
+    public void topology() throws InterruptedException {
+        List<TestCase> testCases = new ArrayList<>();
+        testCases.add(new TestCase(element_count, Mode.ConcurrentProducerAndConsumer, 1, 1));
+        testCases.add(new TestCase(element_count, Mode.ConcurrentProducerAndConsumer, 100, 1));
+        testCases.add(new TestCase(element_count, Mode.ConcurrentProducerAndConsumer, 10, 10));
+
+        WaitStrategy waitStrategy = WaitStrategy.of(System.getProperty("queue.waitStrategy", "yielding"));
+        BenchmarkReport report = new BenchmarkReport("queue-topology");
+        for (TestCase testCase : testCases) {
+            System.gc();
+            Map<String, Object> baseline = benchmark(new ArrayBlockingQueue<>(ring_capacity), testCase);
+            AbstractRingQueue<Object> queue = AbstractRingQueue.forTopology(testCase.getProducerCount(),
+                    testCase.getConsumerCount(), ring_capacity, waitStrategy);
+            System.gc();
+            Map<String, Object> row = benchmark(queue, testCase);
+            row.put("waitStrategy", waitStrategy.toString());
+            row.put("arrayBlockingQueueOpsPerSecond", baseline.get("opsPerSecond"));
+            row.put("speedup", (double) (Long) row.get("opsPerSecond") / Math.max(1, (Long) baseline.get("opsPerSecond")));
+            report.add(row);
+        }
+        report.write();
+    }
+
+    @Test
+    public void batch() throws InterruptedException {
+        List<TestCase> testCases = new ArrayList<>();
+        for (int batchSize : new int[]{1, 16, 256}) {
+            testCases.add(new TestCase(element_count, Mode.ConcurrentProducerAndConsumer, 1, 1, batchSize));
+            testCases.add(new TestCase(element_count, Mode.ConcurrentProducerAndConsumer, 10, 10, batchSize));
+            testCases.add(new TestCase(element_count, Mode.ConcurrentProducerAndConsumer, 100, 1, batchSize));
+        }
+
+        Map<String, Function<TestCase, BlockingQueue<Object>>> queues = new LinkedHashMap<>();
+        queues.put("LinkedBlockingQueue", testCase -> new LinkedBlockingQueue<>());
+        queues.put("LinkedTransferQueue", testCase -> new LinkedTransferQueue<>());
+        queues.put("ArrayBlockingQueue", testCase -> new ArrayBlockingQueue<>(ring_capacity));
+        queues.put("RingQueue", testCase -> AbstractRingQueue.forTopology(testCase.getProducerCount(),
+                testCase.getConsumerCount(), ring_capacity, WaitStrategy.yielding()));
+
+        BenchmarkReport report = new BenchmarkReport("queue-batch");
+        for (Function<TestCase, BlockingQueue<Object>> queueFactory : queues.values()) {
+            for (TestCase testCase : testCases) {
+                BlockingQueue<Object> queue = queueFactory.apply(testCase);
+                System.gc();
+                Map<String, Object> row = benchmark(queue, testCase);
+                row.put("nanosPerElement", 1000000000L / Math.max(1, (Long) row.get("opsPerSecond")));
+                report.add(row);
+            }
+        }
+        report.write();
+    }
+
+    @Test
+    public void payload() throws InterruptedException {
+        List<TestCase> testCases = new ArrayList<>();
+        for (Payload payload : Payload.values()) {
+            testCases.add(new TestCase(element_count, Mode.ConcurrentProducerAndConsumer, 1, 1, 1, payload));
+            testCases.add(new TestCase(element_count, Mode.ConcurrentProducerAndConsumer, 10, 10, 1, payload));
+            testCases.add(new TestCase(element_count, Mode.ProducerAndConsumerShareThread, 10, 0, 1, payload));
+        }
+
+        List<BlockingQueue<Object>> queues = new ArrayList<>();
+        queues.add(new LinkedBlockingQueue<>());
+        queues.add(new LinkedTransferQueue<>());
+        queues.add(new ArrayBlockingQueue<>(ring_capacity));
+        queues.add(new MpmcArrayQueue<>(ring_capacity));
+
+        BenchmarkReport report = new BenchmarkReport("queue-payload");
+        for (BlockingQueue<Object> queue : queues) {
+            for (TestCase testCase : testCases) {
+                System.gc();
+                add(report, benchmark(queue, testCase));
+            }
+        }
+        report.write();
+    }
+
+    /**
+     * Open-loop load at increasing rates (-Dqueue.soak.rates, per second in total) for -Dqueue.soak.seconds each.
+     * Latency is measured from the time an element was due to be sent, so a stalled producer doesn't hide the
+     * delay (coordinated omission); serviceLatency is measured from the actual put.
+     */
+    @Test
+    public void soak() throws InterruptedException {
+        List<Integer> rates = Arrays.stream(System.getProperty("queue.soak.rates", "10000,50000,100000,200000,500000,1000000").split(","))
+                .map(String::trim).map(Integer::valueOf).collect(Collectors.toList());
+        int seconds = Integer.getInteger("queue.soak.seconds", 5);
+        int producerCount = Integer.getInteger("queue.soak.producers", 2);
+        int consumerCount = Integer.getInteger("queue.soak.consumers", 2);
+
+        Map<String, Supplier<BlockingQueue<Object>>> queues = new LinkedHashMap<>();
+        queues.put("LinkedBlockingQueue", LinkedBlockingQueue::new);
+        queues.put("ArrayBlockingQueue", () -> new ArrayBlockingQueue<>(ring_capacity));
+        queues.put("MpmcArrayQueue", () -> new MpmcArrayQueue<>(ring_capacity, WaitStrategy.parking()));
+
+        BenchmarkReport report = new BenchmarkReport("queue-soak");
+        for (Supplier<BlockingQueue<Object>> queue : queues.values()) {
+            for (int rate : rates) {
+                System.gc();
+                report.add(soak(queue.get(), rate, seconds, producerCount, consumerCount));
+            }
+        }
+        report.write();
+    }
+
+    private Map<String, Object> soak(BlockingQueue<Object> queue, int rate, int seconds, int producerCount, int consumerCount) throws InterruptedException {
+        log.info("Begin soak Queue:[{}], rate:{}/s, seconds:{}, producers:{}, consumers:{}",
+                queue.getClass().getSimpleName(), rate, seconds, producerCount, consumerCount);
+        LongAdder sent = new LongAdder();
+        LatencyHistogram intendedLatency = new LatencyHistogram();
+        LatencyHistogram serviceLatency = new LatencyHistogram();
+        CountDownLatch producersDone = new CountDownLatch(producerCount);
+        CountDownLatch consumersDone = new CountDownLatch(consumerCount);
+        long interval = 1000000000L * producerCount / rate;
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        for (int i = 0; i < producerCount; i++) {
+            // Spread the producers over one interval so the total rate is smooth
+            long offset = interval * i / producerCount;
+            new Thread(() -> {
+                long count = 0;
+                for (long intended = start + offset; intended < end; intended += interval) {
+                    long now;
+                    while ((now = System.nanoTime()) < intended) {
+                        if (intended - now > 100000)
+                            LockSupport.parkNanos(intended - now - 50000);
+                        else
+                            Thread.yield();
+                    }
+                    try {
+                        queue.put(new Stamp(intended, now));
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                    count++;
+                }
+                sent.add(count);
+                producersDone.countDown();
+            }).start();
+        }
+        for (int i = 0; i < consumerCount; i++) {
+            new Thread(() -> {
+                LatencyHistogram intended = new LatencyHistogram();
+                LatencyHistogram service = new LatencyHistogram();
+                try {
+                    while (producersDone.getCount() > 0 || !queue.isEmpty()) {
+                        Object element = queue.poll(10, TimeUnit.MILLISECONDS);
+                        if (element instanceof Stamp) {
+                            long now = System.nanoTime();
+                            intended.record(now - ((Stamp) element).intended);
+                            service.record(now - ((Stamp) element).sent);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                synchronized (intendedLatency) {
+                    intendedLatency.add(intended);
+                    serviceLatency.add(service);
+                }
+                consumersDone.countDown();
+            }).start();
+        }
+        producersDone.await();
+        long producersFinished = System.nanoTime();
+        consumersDone.await();
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("queue", queue.getClass().getSimpleName());
+        row.put("producerCount", producerCount);
+        row.put("consumerCount", consumerCount);
+        row.put("targetRate", rate);
+        row.put("achievedRate", perSecond(sent.sum(), Math.max(producersFinished, end) - start));
+        row.put("elements", intendedLatency.getTotalCount());
+        row.putAll(intendedLatency.summary("latency"));
+        row.putAll(serviceLatency.summary("serviceLatency"));
+        log.info("Finish soak Queue:[{}], result:{}", queue.getClass().getSimpleName(), row);
+        return row;
+    }
+
+    private static void add(BenchmarkReport report, Map<String, Object> row) {
+        if (row != null)
+            report.add(row);
+    }
+
+    private static long perSecond(long operations, long nanos) {
+        return nanos <= 0 ? 0 : (long) (operations * 1e9 / nanos);
+    }
+
+    /**
+     * Returns the report row of the run, or null if the case was skipped.
+     */
+    private Map<String, Object> benchmark(BlockingQueue<Object> queue, TestCase testCase) throws InterruptedException {
+        if (testCase.mode == Mode.ProducerAndThenConsumer && queue.remainingCapacity() < testCase.elementCount) {
+            log.info("Skip benchmark Queue:[{}], case:{}, capacity is less than element count", queue, testCase);
+            return null;
+        }
+
+        allocatedBytes.reset();
+        producerFinish.reset();
+        consumerFinish.reset();
+        latency.reset();
         log.info("\r\n==========================\r\nBegin benchmark Queue:[{}], case:{}", queue.getClass().getSimpleName(),
                 testCase.toString());
         CountDownLatch startCountDownLatch = new CountDownLatch(1);
+        long enqueueNanos;
+        long dequeueNanos;
+        long durationNanos;
 
         if (testCase.mode == Mode.ProducerAndConsumerShareThread) {
             CountDownLatch finishCountDownLatch = new CountDownLatch(testCase.getProducerCount());
@@ -79,9 +362,12 @@ public class QueueThroughputBenchmark {
                         queue,
                         testCase)).start();
             }
+            long begin = System.nanoTime();
             startCountDownLatch.countDown();
             finishCountDownLatch.await();
-
+            durationNanos = System.nanoTime() - begin;
+            enqueueNanos = durationNanos;
+            dequeueNanos = durationNanos;
         } else if (testCase.mode == Mode.ConcurrentProducerAndConsumer) {
             CountDownLatch finishCountDownLatch = new CountDownLatch(testCase.getProducerCount() + testCase.getConsumerCount());
             for (int i = 0; i < testCase.getProducerCount(); i++) {
@@ -99,9 +385,13 @@ public class QueueThroughputBenchmark {
                         queue,
                         testCase)).start();
             }
+            long begin = System.nanoTime();
             startCountDownLatch.countDown();
             finishCountDownLatch.await();
-        } else if (testCase.mode == Mode.ProducerAndThenConsumer) {
+            durationNanos = System.nanoTime() - begin;
+            enqueueNanos = producerFinish.get() - begin;
+            dequeueNanos = consumerFinish.get() - begin;
+        } else {
             CountDownLatch finishCountDownLatch = new CountDownLatch(testCase.getProducerCount());
             for (int i = 0; i < testCase.getProducerCount(); i++) {
                 new Thread(new ProducerTask(
@@ -111,8 +401,10 @@ public class QueueThroughputBenchmark {
                         queue,
                         testCase)).start();
             }
+            long begin = System.nanoTime();
             startCountDownLatch.countDown();
             finishCountDownLatch.await();
+            enqueueNanos = System.nanoTime() - begin;
 
             startCountDownLatch = new CountDownLatch(1);
             finishCountDownLatch = new CountDownLatch(testCase.getConsumerCount());
@@ -123,14 +415,53 @@ public class QueueThroughputBenchmark {
                         queue,
                         testCase)).start();
             }
+            begin = System.nanoTime();
             startCountDownLatch.countDown();
             finishCountDownLatch.await();
+            dequeueNanos = System.nanoTime() - begin;
+            durationNanos = enqueueNanos + dequeueNanos;
+        }
+
+        long elements = testCase.elements();
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("queue", queue.getClass().getSimpleName());
+        row.put("mode", testCase.getMode());
+        row.put("producerCount", testCase.getProducerCount());
+        row.put("consumerCount", testCase.getConsumerCount());
+        row.put("batchSize", testCase.getBatchSize());
+        row.put("payload", testCase.isRecordLatency() ? "Timestamp" : testCase.getPayload());
+        row.put("elements", elements);
+        row.put("durationMillis", durationNanos / 1000000);
+        row.put("opsPerSecond", perSecond(elements, durationNanos));
+        row.put("enqueueOpsPerSecond", perSecond(elements, enqueueNanos));
+        row.put("dequeueOpsPerSecond", perSecond(elements, dequeueNanos));
+        row.put("bytesPerElement", allocatedBytes.sum() / elements);
+        if (testCase.isRecordLatency())
+            row.putAll(latency.summary("latency"));
+        log.info("Finish benchmark Queue:[{}], case:{}, result:{}\r\n==========================\n", queue.getClass().getSimpleName(),
+                testCase.toString(), row);
+        return row;
+    }
+
+    private void consumed(Object element, LatencyHistogram histogram) {
+        if (element instanceof Long)
+            histogram.record(System.nanoTime() - (Long) element);
+    }
+
+    private void merge(LatencyHistogram histogram) {
+        synchronized (latency) {
+            latency.add(histogram);
         }
+    }
+
+    private static final class Stamp {
+        private final long intended;
+        private final long sent;
 
-        long finish = System.currentTimeMillis();
-        log.info("Finish benchmark Queue:[{}], case:{}, QPS:{}\r\n==========================\n", queue.getClass().getSimpleName(),
-                testCase.toString(),
-                (long) element_count / (finish - begin) / 10);
+        Stamp(long intended, long sent) {
+            this.intended = intended;
+            this.sent = sent;
+        }
     }
 
     enum Mode {
@@ -142,21 +473,24 @@ public class QueueThroughputBenchmark {
     class ProducerTask implements Runnable {
 
         private String name;
-        private BlockingQueue<String> queue;
+        private BlockingQueue<Object> queue;
         private TestCase testCase;
+        private IntFunction<?> elements;
+        private LatencyHistogram histogram = new LatencyHistogram();
         private CountDownLatch startCountDownLatch;
         private CountDownLatch finishCountDownLatch;
 
         public ProducerTask(CountDownLatch startCountDownLatch,
                             CountDownLatch finishCountDownLatch,
                             String name,
-                            BlockingQueue<String> queue,
+                            BlockingQueue<Object> queue,
                             TestCase testCase) {
             this.startCountDownLatch = startCountDownLatch;
             this.finishCountDownLatch = finishCountDownLatch;
             this.name = name;
             this.queue = queue;
             this.testCase = testCase;
+            this.elements = testCase.isRecordLatency() ? i -> System.nanoTime() : testCase.getPayload().elements(name);
         }
 
         @Override
@@ -168,13 +502,16 @@ public class QueueThroughputBenchmark {
                 e.printStackTrace();
             }
 
+            long allocated = AllocationMeter.currentThreadAllocatedBytes();
             int count = testCase.elementCount / testCase.getProducerCount();
 
-            if (testCase.mode == Mode.ProducerAndConsumerShareThread) {
+            if (testCase.batchSize > 1) {
+                produceInBatches(count);
+            } else if (testCase.mode == Mode.ProducerAndConsumerShareThread) {
                 for (int i = 0; i < count; i++) {
                     try {
-                        queue.put(name + i);
-                        queue.take();
+                        queue.put(elements.apply(i));
+                        consumed(queue.take(), histogram);
                     } catch (Exception e) {
                         e.printStackTrace();
                     }
@@ -182,26 +519,55 @@ public class QueueThroughputBenchmark {
             } else {
                 for (int i = 0; i < count; i++) {
                     try {
-                        queue.put(name + i);
+                        queue.put(elements.apply(i));
                     } catch (Exception e) {
                         e.printStackTrace();
                     }
                 }
             }
+            producerFinish.accumulate(System.nanoTime());
+            allocatedBytes.add(AllocationMeter.currentThreadAllocatedBytes() - allocated);
+            merge(histogram);
             finishCountDownLatch.countDown();
         }
+
+        private void produceInBatches(int count) {
+            BatchQueue<Object> batchQueue = BatchQueue.of(queue);
+            List<Object> batch = new ArrayList<>(testCase.batchSize);
+            List<Object> taken = new ArrayList<>(testCase.batchSize);
+            for (int i = 0; i < count; i++) {
+                batch.add(elements.apply(i));
+                if (batch.size() == testCase.batchSize || i == count - 1) {
+                    try {
+                        batchQueue.putBatch(batch);
+                        if (testCase.mode == Mode.ProducerAndConsumerShareThread) {
+                            int consumed = 0;
+                            while (consumed < batch.size()) {
+                                consumed += batchQueue.takeBatch(taken, batch.size() - consumed);
+                            }
+                            taken.forEach(element -> consumed(element, histogram));
+                            taken.clear();
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                    batch.clear();
+                }
+            }
+        }
     }
 
     class ConsumerTask implements Runnable {
 
-        private BlockingQueue<String> queue;
+        private BlockingQueue<Object> queue;
         private TestCase testCase;
+        private LatencyHistogram histogram = new LatencyHistogram();
         private CountDownLatch startCountDownLatch;
         private CountDownLatch finishCountDownLatch;
 
         public ConsumerTask(CountDownLatch startCountDownLatch,
                             CountDownLatch finishCountDownLatch,
-                            BlockingQueue<String> queue,
+                            BlockingQueue<Object> queue,
                             TestCase testCase) {
             this.startCountDownLatch = startCountDownLatch;
             this.finishCountDownLatch = finishCountDownLatch;
@@ -216,28 +582,69 @@ public class QueueThroughputBenchmark {
             } catch (InterruptedException e) {
                 e.printStackTrace();
             }
+            long allocated = AllocationMeter.currentThreadAllocatedBytes();
             int count = testCase.elementCount / testCase.getConsumerCount();
 
-            if (testCase.mode != Mode.ProducerAndConsumerShareThread) {
+            if (testCase.mode != Mode.ProducerAndConsumerShareThread && testCase.batchSize > 1) {
+                BatchQueue<Object> batchQueue = BatchQueue.of(queue);
+                List<Object> batch = new ArrayList<>(testCase.batchSize);
+                int consumed = 0;
+                while (consumed < count) {
+                    try {
+                        consumed += batchQueue.takeBatch(batch, Math.min(testCase.batchSize, count - consumed));
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                    batch.forEach(element -> consumed(element, histogram));
+                    batch.clear();
+                }
+            } else if (testCase.mode != Mode.ProducerAndConsumerShareThread) {
                 for (int i = 0; i < count; i++) {
                     try {
-                        queue.take();
+                        consumed(queue.take(), histogram);
                     } catch (Exception e) {
                         e.printStackTrace();
                     }
                 }
             }
+            consumerFinish.accumulate(System.nanoTime());
+            allocatedBytes.add(AllocationMeter.currentThreadAllocatedBytes() - allocated);
+            merge(histogram);
             finishCountDownLatch.countDown();
         }
     }
 
     @Data
-    @AllArgsConstructor
     @NoArgsConstructor
     class TestCase {
         private int elementCount;
         private Mode mode;
         private int producerCount;
         private int consumerCount;
+        private int batchSize = 1;
+        private Payload payload = Payload.Allocating;
+        private boolean recordLatency;
+
+        public TestCase(int elementCount, Mode mode, int producerCount, int consumerCount) {
+            this(elementCount, mode, producerCount, consumerCount, 1);
+        }
+
+        public TestCase(int elementCount, Mode mode, int producerCount, int consumerCount, int batchSize) {
+            this(elementCount, mode, producerCount, consumerCount, batchSize, Payload.Allocating);
+        }
+
+        public TestCase(int elementCount, Mode mode, int producerCount, int consumerCount, int batchSize, Payload payload) {
+            this.elementCount = elementCount;
+            this.mode = mode;
+            this.producerCount = producerCount;
+            this.consumerCount = consumerCount;
+            this.batchSize = batchSize;
+            this.payload = payload;
+        }
+
+        // Every producer puts elementCount / producerCount elements
+        public long elements() {
+            return (long) (elementCount / producerCount) * producerCount;
+        }
     }
 }
@@ -0,0 +1,75 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Synchronous hand-off through a single slot, waiting with a {@link WaitStrategy} instead of parking the way
+ * SynchronousQueue does. transfer() claims the empty slot and returns once a taker has emptied it, so like
+ * SynchronousQueue.put() it doesn't return before the element has been received. Each transfer gets its own
+ * node, so any number of producers and consumers can share the slot.
+ */
+public class RendezvousSlot<E> {
+
+    private final AtomicReference<Node<E>> slot = new AtomicReference<>();
+    private final WaitStrategy waitStrategy;
+
+    public RendezvousSlot(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    public void transfer(E element) throws InterruptedException {
+        if (element == null)
+            throw new NullPointerException();
+        Node<E> node = new Node<>(element);
+        int counter = 0;
+        while (!slot.compareAndSet(null, node)) {
+            counter = idle(counter);
+        }
+        waitStrategy.signalAll();
+        counter = 0;
+        while (!node.taken) {
+            // Back out on interrupt only if no taker got the node yet, otherwise the element was delivered
+            if (Thread.interrupted()) {
+                if (slot.compareAndSet(node, null)) {
+                    waitStrategy.signalAll();
+                    throw new InterruptedException();
+                }
+                Thread.currentThread().interrupt();
+            }
+            counter = waitStrategy.idle(counter);
+        }
+    }
+
+    public E take() throws InterruptedException {
+        int counter = 0;
+        while (true) {
+            Node<E> node = slot.get();
+            if (node != null && slot.compareAndSet(node, null)) {
+                node.taken = true;
+                waitStrategy.signalAll();
+                return node.element;
+            }
+            counter = idle(counter);
+        }
+    }
+
+    private int idle(int counter) throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        return waitStrategy.idle(counter);
+    }
+
+    @Override
+    public String toString() {
+        return "RendezvousSlot[waitStrategy=" + waitStrategy + "]";
+    }
+
+    private static final class Node<E> {
+        private final E element;
+        private volatile boolean taken;
+
+        Node(E element) {
+            this.element = element;
+        }
+    }
+}
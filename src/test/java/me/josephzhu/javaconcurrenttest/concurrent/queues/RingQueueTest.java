@@ -0,0 +1,158 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+@Slf4j
+public class RingQueueTest {
+
+    private static List<AbstractRingQueue<Integer>> queues(int capacity) {
+        return Arrays.asList(new SpscArrayQueue<>(capacity), new MpscArrayQueue<>(capacity), new MpmcArrayQueue<>(capacity));
+    }
+
+    // The indexes have wrapped around, the iterator must still see the elements in queue order
+    @Test
+    public void iterator() {
+        for (AbstractRingQueue<Integer> queue : queues(8)) {
+            for (int i = 0; i < 8; i++) {
+                Assert.assertTrue(queue.offer(i));
+            }
+            Assert.assertFalse(queue.offer(8));
+            for (int i = 0; i < 5; i++) {
+                Assert.assertEquals(i, (int) queue.poll());
+            }
+            for (int i = 8; i < 11; i++) {
+                Assert.assertTrue(queue.offer(i));
+            }
+            List<Integer> expected = Arrays.asList(5, 6, 7, 8, 9, 10);
+            Assert.assertEquals(queue.toString(), expected, new ArrayList<>(queue));
+            Assert.assertArrayEquals(expected.toArray(), queue.toArray());
+            Assert.assertTrue(queue.contains(10));
+            Assert.assertFalse(queue.contains(4));
+            Assert.assertTrue(queue.containsAll(expected));
+            Assert.assertEquals(6, queue.size());
+        }
+    }
+
+    @Test
+    public void spsc() throws InterruptedException {
+        exactlyOnce(new SpscArrayQueue<>(64), 1, 1, false);
+        exactlyOnce(new SpscArrayQueue<>(64), 1, 1, true);
+    }
+
+    @Test
+    public void mpsc() throws InterruptedException {
+        exactlyOnce(new MpscArrayQueue<>(64), 4, 1, false);
+        exactlyOnce(new MpscArrayQueue<>(64), 4, 1, true);
+    }
+
+    @Test
+    public void mpmc() throws InterruptedException {
+        exactlyOnce(new MpmcArrayQueue<>(64), 4, 4, false);
+        exactlyOnce(new MpmcArrayQueue<>(64), 4, 4, true);
+    }
+
+    /**
+     * Producers put disjoint ranges through a small queue, so the indexes wrap around thousands of times, and
+     * every element must be taken exactly once. Each producer's elements must come out in order.
+     * Batches of 7 and 5 don't divide the capacity, so they straddle the wrap-around.
+     */
+    private void exactlyOnce(AbstractRingQueue<Integer> queue, int producerCount, int consumerCount, boolean batch) throws InterruptedException {
+        int perProducer = 100000;
+        int count = perProducer * producerCount;
+        AtomicIntegerArray taken = new AtomicIntegerArray(count);
+        AtomicInteger consumed = new AtomicInteger();
+        AtomicInteger outOfOrder = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producerCount; p++) {
+            int from = p * perProducer;
+            threads.add(new Thread(() -> {
+                try {
+                    if (batch) {
+                        List<Integer> elements = new ArrayList<>();
+                        for (int i = from; i < from + perProducer; i++) {
+                            elements.add(i);
+                            if (elements.size() == 7 || i == from + perProducer - 1) {
+                                queue.putBatch(elements);
+                                elements.clear();
+                            }
+                        }
+                    } else {
+                        for (int i = from; i < from + perProducer; i++) {
+                            queue.put(i);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (int c = 0; c < consumerCount; c++) {
+            threads.add(new Thread(() -> {
+                int[] last = new int[producerCount];
+                Arrays.fill(last, -1);
+                List<Integer> elements = new ArrayList<>();
+                try {
+                    while (consumed.get() < count) {
+                        if (batch) {
+                            if (queue.drainBatch(elements, 5) == 0)
+                                Thread.yield();
+                        } else {
+                            Integer e = queue.poll(10, TimeUnit.MILLISECONDS);
+                            if (e != null)
+                                elements.add(e);
+                        }
+                        for (int e : elements) {
+                            taken.incrementAndGet(e);
+                            int producer = e / perProducer;
+                            if (e <= last[producer])
+                                outOfOrder.incrementAndGet();
+                            last[producer] = e;
+                        }
+                        consumed.addAndGet(elements.size());
+                        elements.clear();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.MINUTES.toMillis(1));
+            Assert.assertFalse(queue + " stuck", thread.isAlive());
+        }
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(queue + " element " + i, 1, taken.get(i));
+        }
+        Assert.assertEquals(0, outOfOrder.get());
+        Assert.assertTrue(queue.isEmpty());
+        log.info("{} producers:{}, consumers:{}, batch:{}, elements:{}", queue, producerCount, consumerCount, batch, count);
+    }
+
+    @Test
+    public void shutdownNow() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new MpmcArrayQueue<>(16));
+        executor.execute(() -> {
+            try {
+                TimeUnit.SECONDS.sleep(10);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            executor.execute(() -> {
+            });
+        }
+        Assert.assertEquals(10, executor.shutdownNow().size());
+    }
+}
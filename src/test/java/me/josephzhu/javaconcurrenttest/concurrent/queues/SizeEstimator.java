@@ -0,0 +1,35 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+/**
+ * Estimated heap retained by one queued element, used by {@link MemoryBoundedBlockingQueue} to admit elements
+ * by bytes instead of by count. It is asked again when the element leaves the queue, so it must return the
+ * same value for an element for as long as it is queued.
+ */
+@FunctionalInterface
+public interface SizeEstimator<E> {
+
+    long estimate(E e);
+
+    /**
+     * Adds a per-element overhead, e.g. 24 bytes for a LinkedBlockingQueue node.
+     */
+    default SizeEstimator<E> plus(long overhead) {
+        return e -> estimate(e) + overhead;
+    }
+
+    static <E> SizeEstimator<E> fixed(long bytes) {
+        return e -> bytes;
+    }
+
+    /**
+     * A Java 8 String: the String object (24 bytes) and its char[] (16 byte header plus 2 bytes per char),
+     * each aligned to 8 bytes.
+     */
+    static SizeEstimator<String> strings() {
+        return s -> 24 + align(16 + 2L * s.length());
+    }
+
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
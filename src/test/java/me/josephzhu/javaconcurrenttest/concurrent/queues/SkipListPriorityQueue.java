@@ -0,0 +1,115 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import java.util.AbstractQueue;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Unbounded lock-free priority queue on a ConcurrentSkipListSet, for when PriorityBlockingQueue's single lock
+ * around a binary heap is the bottleneck. Every element is stored with a per-thread sequence number and the id of
+ * the inserting thread, so equal elements can be queued more than once and come out in insertion order per
+ * producer, without a shared counter. Inserts at different priorities don't touch each other, polls still meet at
+ * the head of the list. size() is a counter, not a traversal, and removing an arbitrary element is O(n) as in
+ * PriorityBlockingQueue.
+ */
+public class SkipListPriorityQueue<E> extends AbstractQueue<E> {
+
+    // Per queue, so sequences only grow by the elements this thread put into this queue
+    private final ThreadLocal<long[]> sequence = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final ConcurrentSkipListSet<Node<E>> nodes;
+    private final LongAdder size = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public SkipListPriorityQueue() {
+        this((a, b) -> ((Comparable<? super E>) a).compareTo(b));
+    }
+
+    public SkipListPriorityQueue(Comparator<? super E> comparator) {
+        Comparator<Node<E>> byElement = (a, b) -> comparator.compare(a.element, b.element);
+        this.nodes = new ConcurrentSkipListSet<>(byElement
+                .thenComparingLong(node -> node.sequence)
+                .thenComparingLong(node -> node.producer));
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        long producer = Thread.currentThread().getId();
+        long[] sequence = this.sequence.get();
+        // Thread ids can be reused, so a new thread may start at a sequence a dead one with the same id still
+        // has queued. Its sequence only moves forward, so retrying keeps its own elements in order
+        while (!nodes.add(new Node<>(e, producer, sequence[0]++))) {
+        }
+        size.increment();
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        Node<E> node = nodes.pollFirst();
+        if (node == null)
+            return null;
+        size.decrement();
+        return node.element;
+    }
+
+    @Override
+    public E peek() {
+        // first() throws on an empty set, the iterator doesn't
+        Iterator<Node<E>> iterator = nodes.iterator();
+        return iterator.hasNext() ? iterator.next().element : null;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, size.sum()));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        Iterator<Node<E>> iterator = nodes.iterator();
+        return new Iterator<E>() {
+            private Node<E> last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public E next() {
+                last = iterator.next();
+                return last.element;
+            }
+
+            @Override
+            public void remove() {
+                // Another thread may have polled it meanwhile, only count what this one removed
+                if (last != null && nodes.remove(last))
+                    size.decrement();
+                last = null;
+            }
+        };
+    }
+
+    private static final class Node<E> {
+        private final E element;
+        private final long producer;
+        private final long sequence;
+
+        Node(E element, long producer, long sequence) {
+            this.element = element;
+            this.producer = producer;
+            this.sequence = sequence;
+        }
+    }
+}
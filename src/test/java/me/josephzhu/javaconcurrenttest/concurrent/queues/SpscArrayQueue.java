@@ -0,0 +1,102 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded single-producer single-consumer queue. A null slot means free, so neither side reads the other's
+ * index on the fast path, and slots and indexes are published with lazySet instead of a full fence.
+ * offer/put must only be called by one thread and poll/take by one (other) thread.
+ */
+public class SpscArrayQueue<E> extends AbstractRingQueue<E> {
+
+    private final AtomicReferenceArray<E> buffer;
+
+    public SpscArrayQueue(int capacity) {
+        this(capacity, WaitStrategy.yielding());
+    }
+
+    public SpscArrayQueue(int capacity, WaitStrategy waitStrategy) {
+        super(capacity, waitStrategy);
+        buffer = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        long pos = producerIndex.get();
+        int index = (int) (pos & mask);
+        if (buffer.get(index) != null)
+            return false;
+        buffer.lazySet(index, e);
+        producerIndex.lazySet(pos + 1);
+        waitStrategy.signalAll();
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        long pos = consumerIndex.get();
+        int index = (int) (pos & mask);
+        E e = buffer.get(index);
+        if (e == null)
+            return null;
+        buffer.lazySet(index, null);
+        consumerIndex.lazySet(pos + 1);
+        waitStrategy.signalAll();
+        return e;
+    }
+
+    // The consumer frees slots in order, so if the last slot of the batch is free all of them are
+    @Override
+    public int offerBatch(List<? extends E> batch) {
+        int count = Math.min(batch.size(), capacity);
+        if (count == 0)
+            return 0;
+        long pos = producerIndex.get();
+        if (buffer.get((int) ((pos + count - 1) & mask)) != null)
+            return super.offerBatch(batch);
+        for (int i = 0; i < count; i++) {
+            E e = batch.get(i);
+            if (e == null) {
+                producerIndex.lazySet(pos + i);
+                throw new NullPointerException();
+            }
+            buffer.lazySet((int) ((pos + i) & mask), e);
+        }
+        producerIndex.lazySet(pos + count);
+        waitStrategy.signalAll();
+        return count;
+    }
+
+    @Override
+    public int drainBatch(Collection<? super E> target, int maxElements) {
+        long pos = consumerIndex.get();
+        int count = 0;
+        E e;
+        while (count < maxElements && (e = buffer.get((int) ((pos + count) & mask))) != null) {
+            target.add(e);
+            buffer.lazySet((int) ((pos + count) & mask), null);
+            count++;
+        }
+        if (count > 0) {
+            consumerIndex.lazySet(pos + count);
+            waitStrategy.signalAll();
+        }
+        return count;
+    }
+
+    @Override
+    protected E elementAt(long pos) {
+        E e = buffer.get((int) (pos & mask));
+        // Once the consumer is past pos the slot is free or already holds an element of the next lap
+        return consumerIndex.get() <= pos ? e : null;
+    }
+
+    @Override
+    public E peek() {
+        return buffer.get((int) (consumerIndex.get() & mask));
+    }
+}
@@ -0,0 +1,271 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical hashed timing wheel (Varghese and Lauck, as in the classic Linux timer wheel). Level 0 has one
+ * bucket per tick, every higher level covers wheelSize buckets of the level below and is cascaded down when the
+ * lower level wraps around. schedule() and cancel() are O(1) and lock-free: they only hand the timeout to the
+ * wheel thread, which owns the buckets, moves them every tick and passes expired tasks to the consumer.
+ * Timeouts fire on the first tick at or after their deadline, so they are up to one tick late but never early.
+ * The consumer runs on the wheel thread and should hand heavy work off.
+ */
+@Slf4j
+public class TimingWheel<T> implements AutoCloseable {
+
+    private static final int LEVELS = 4;
+
+    private final long tickNanos;
+    private final int bits;
+    private final int mask;
+    private final Bucket<T>[][] wheels;
+    private final Consumer<? super T> consumer;
+    private final Queue<Timeout<T>> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout<T>> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final long startTime = System.nanoTime();
+    private final Thread worker;
+    private volatile boolean running = true;
+    // Next tick to process, only used by the wheel thread
+    private long currentTick;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(long tick, TimeUnit unit, int wheelSize, Consumer<? super T> consumer) {
+        if (tick <= 0 || wheelSize < 2 || Integer.bitCount(wheelSize) != 1)
+            throw new IllegalArgumentException("tick:" + tick + ", wheelSize:" + wheelSize + " (must be a power of two)");
+        this.tickNanos = unit.toNanos(tick);
+        this.bits = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        this.consumer = consumer;
+        this.wheels = (Bucket<T>[][]) new Bucket[LEVELS][wheelSize];
+        for (Bucket<T>[] wheel : wheels) {
+            for (int i = 0; i < wheelSize; i++) {
+                wheel[i] = new Bucket<>();
+            }
+        }
+        worker = new Thread(this::run, "timing-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public Timeout<T> schedule(T task, long delay, TimeUnit unit) {
+        if (!running)
+            throw new IllegalStateException("TimingWheel is closed");
+        Timeout<T> timeout = new Timeout<>(this, task, System.nanoTime() + unit.toNanos(delay));
+        pending.incrementAndGet();
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    public long pendingTimeouts() {
+        return pending.get();
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Stops the wheel thread and waits for it, pending timeouts never fire.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            long targetTick = (System.nanoTime() - startTime) / tickNanos;
+            transferScheduled();
+            removeCancelled();
+            while (currentTick <= targetTick) {
+                int index = (int) (currentTick & mask);
+                if (index == 0)
+                    cascade();
+                expire(wheels[0][index]);
+                currentTick++;
+            }
+            long sleepNanos = startTime + currentTick * tickNanos - System.nanoTime();
+            if (sleepNanos > 0)
+                LockSupport.parkNanos(this, sleepNanos);
+        }
+    }
+
+    private void transferScheduled() {
+        Timeout<T> timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.state != Timeout.INIT)
+                continue;
+            // Round up, a timeout must not fire before its deadline
+            timeout.deadlineTick = Math.max(0, (timeout.deadline - startTime + tickNanos - 1) / tickNanos);
+            add(timeout);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout<T> timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null)
+                timeout.bucket.remove(timeout);
+        }
+    }
+
+    private void add(Timeout<T> timeout) {
+        long ticks = timeout.deadlineTick - currentTick;
+        if (ticks < 0) {
+            wheels[0][(int) (currentTick & mask)].add(timeout);
+            return;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && ticks >= 1L << (bits * (level + 1))) {
+            level++;
+        }
+        long deadlineTick = timeout.deadlineTick;
+        if (level == LEVELS - 1 && ticks >= 1L << (bits * LEVELS))
+            deadlineTick = currentTick + (1L << (bits * LEVELS)) - 1;
+        wheels[level][(int) ((deadlineTick >>> (bits * level)) & mask)].add(timeout);
+    }
+
+    // Level 0 wrapped around: move the next bucket of every level that wrapped one level down
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            int index = (int) ((currentTick >>> (bits * level)) & mask);
+            Timeout<T> timeout = wheels[level][index].clear();
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.next = null;
+                timeout.prev = null;
+                add(timeout);
+                timeout = next;
+            }
+            if (index != 0)
+                break;
+        }
+    }
+
+    private void expire(Bucket<T> bucket) {
+        Timeout<T> timeout = bucket.clear();
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            timeout.next = null;
+            timeout.prev = null;
+            if (timeout.expire()) {
+                pending.decrementAndGet();
+                try {
+                    consumer.accept(timeout.task);
+                } catch (Throwable e) {
+                    log.warn("Timeout task {} failed", timeout.task, e);
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    public static final class Timeout<T> {
+        private static final int INIT = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final TimingWheel<T> timingWheel;
+        private final T task;
+        private final long deadline;
+        private volatile int state = INIT;
+        // Owned by the wheel thread
+        private long deadlineTick;
+        private Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        Timeout(TimingWheel<T> timingWheel, T task, long deadline) {
+            this.timingWheel = timingWheel;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        public T getTask() {
+            return task;
+        }
+
+        // Deadline in System.nanoTime()
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, INIT, CANCELLED))
+                return false;
+            timingWheel.pending.decrementAndGet();
+            timingWheel.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        private boolean expire() {
+            return STATE.compareAndSet(this, INIT, EXPIRED);
+        }
+    }
+
+    // Doubly linked list of timeouts so a cancelled one can be unlinked in O(1)
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+        private Timeout<T> tail;
+
+        void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            if (tail == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout<T> timeout) {
+            if (timeout.prev != null)
+                timeout.prev.next = timeout.next;
+            else
+                head = timeout.next;
+            if (timeout.next != null)
+                timeout.next.prev = timeout.prev;
+            else
+                tail = timeout.prev;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        // Detaches and returns the whole list
+        Timeout<T> clear() {
+            Timeout<T> first = head;
+            for (Timeout<T> timeout = first; timeout != null; timeout = timeout.next) {
+                timeout.bucket = null;
+            }
+            head = tail = null;
+            return first;
+        }
+    }
+}
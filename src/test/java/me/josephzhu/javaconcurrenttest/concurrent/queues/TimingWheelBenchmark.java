@@ -0,0 +1,224 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import lombok.extern.slf4j.Slf4j;
+import me.josephzhu.javaconcurrenttest.benchmark.BenchmarkReport;
+import me.josephzhu.javaconcurrenttest.benchmark.LatencyHistogram;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Schedules -Dtimer.counts timers with random delays between -Dtimer.minDelayMillis and -Dtimer.maxDelayMillis,
+ * cancels every second one and waits for the rest to fire. Reports the cost of schedule and cancel and how late
+ * the timers fired. 10M timers need a bigger heap than the default, e.g. -Xmx4g.
+ */
+@Slf4j
+public class TimingWheelBenchmark {
+
+    int minDelayMillis = Integer.getInteger("timer.minDelayMillis", 1000);
+    int maxDelayMillis = Integer.getInteger("timer.maxDelayMillis", 5000);
+    int tickMillis = Integer.getInteger("timer.tickMillis", 1);
+
+    @Test
+    public void test() throws Exception {
+        List<Integer> counts = Arrays.stream(System.getProperty("timer.counts", "1000000,10000000").split(","))
+                .map(String::trim).map(Integer::valueOf).collect(Collectors.toList());
+
+        Map<String, Supplier<Timer>> timers = new LinkedHashMap<>();
+        timers.put("TimingWheel", WheelTimer::new);
+        timers.put("DelayQueue", DelayQueueTimer::new);
+        timers.put("ScheduledThreadPoolExecutor", ScheduledExecutorTimer::new);
+
+        BenchmarkReport report = new BenchmarkReport("timer-wheel");
+        for (int count : counts) {
+            for (Map.Entry<String, Supplier<Timer>> timer : timers.entrySet()) {
+                System.gc();
+                try (Timer t = timer.getValue().get()) {
+                    report.add(benchmark(timer.getKey(), t, count));
+                }
+            }
+        }
+        report.write();
+    }
+
+    private Map<String, Object> benchmark(String name, Timer timer, int count) throws InterruptedException {
+        log.info("Begin timer:[{}], timers:{}", name, count);
+        Object[] handles = new Object[count];
+        long delayRange = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis - minDelayMillis);
+        long minDelay = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            handles[i] = timer.schedule(minDelay + ThreadLocalRandom.current().nextLong(delayRange + 1));
+        }
+        long scheduleNanos = System.nanoTime() - begin;
+
+        int cancelled = 0;
+        begin = System.nanoTime();
+        for (int i = 0; i < count; i += 2) {
+            if (timer.cancel(handles[i]))
+                cancelled++;
+        }
+        long cancelNanos = System.nanoTime() - begin;
+        handles = null;
+
+        long expected = count - cancelled;
+        long waitUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis) + TimeUnit.SECONDS.toNanos(30);
+        while (timer.fired.get() < expected && System.nanoTime() < waitUntil) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        if (timer.fired.get() != expected)
+            log.warn("Timer:[{}] fired {} of {} timers", name, timer.fired.get(), expected);
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("timer", name);
+        row.put("timers", count);
+        row.put("scheduleNanosPerOp", scheduleNanos / count);
+        row.put("cancelNanosPerOp", cancelNanos / Math.max(1, (count + 1) / 2));
+        row.put("cancelled", cancelled);
+        row.put("fired", timer.fired.get());
+        row.putAll(timer.lateness.summary("lateness"));
+        log.info("Finish timer:[{}], result:{}", name, row);
+        return row;
+    }
+
+    /**
+     * Each implementation fires its timers on a single thread, so the lateness histogram has one writer.
+     */
+    private static abstract class Timer implements AutoCloseable {
+        final LatencyHistogram lateness = new LatencyHistogram();
+        final AtomicLong fired = new AtomicLong();
+
+        void expired(long deadline) {
+            lateness.record(System.nanoTime() - deadline);
+            fired.lazySet(fired.get() + 1);
+        }
+
+        abstract Object schedule(long delayNanos);
+
+        abstract boolean cancel(Object handle);
+
+        @Override
+        public abstract void close();
+    }
+
+    private class WheelTimer extends Timer {
+        private final TimingWheel<Long> timingWheel = new TimingWheel<>(tickMillis, TimeUnit.MILLISECONDS, 256, this::expired);
+
+        @Override
+        Object schedule(long delayNanos) {
+            return timingWheel.schedule(System.nanoTime() + delayNanos, delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        boolean cancel(Object handle) {
+            return ((TimingWheel.Timeout<?>) handle).cancel();
+        }
+
+        @Override
+        public void close() {
+            timingWheel.close();
+        }
+    }
+
+    /**
+     * DelayQueue.remove is O(n), so cancel only flags the element and the consumer drops it when it comes out
+     * of the queue, which is what you'd do in practice. The element stays in the heap until then.
+     */
+    private static class DelayQueueTimer extends Timer {
+        private final DelayQueue<DelayedTimeout> delayQueue = new DelayQueue<>();
+        private final Thread consumer = new Thread(() -> {
+            try {
+                while (true) {
+                    DelayedTimeout timeout = delayQueue.take();
+                    if (!timeout.cancelled)
+                        expired(timeout.getDeadline());
+                }
+            } catch (InterruptedException e) {
+                // closed
+            }
+        }, "delay-queue-timer");
+
+        DelayQueueTimer() {
+            consumer.setDaemon(true);
+            consumer.start();
+        }
+
+        @Override
+        Object schedule(long delayNanos) {
+            DelayedTimeout timeout = new DelayedTimeout(delayNanos);
+            delayQueue.put(timeout);
+            return timeout;
+        }
+
+        @Override
+        boolean cancel(Object handle) {
+            DelayedTimeout timeout = (DelayedTimeout) handle;
+            if (timeout.cancelled)
+                return false;
+            timeout.cancelled = true;
+            return true;
+        }
+
+        @Override
+        public void close() {
+            consumer.interrupt();
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class DelayedTimeout extends DeadlineDelayed {
+        private volatile boolean cancelled;
+
+        DelayedTimeout(long delayNanos) {
+            super(delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * One thread, and removeOnCancelPolicy so a cancelled task leaves the queue right away (O(log n)).
+     */
+    private static class ScheduledExecutorTimer extends Timer {
+        private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+
+        ScheduledExecutorTimer() {
+            executor.setRemoveOnCancelPolicy(true);
+        }
+
+        @Override
+        Object schedule(long delayNanos) {
+            long deadline = System.nanoTime() + delayNanos;
+            return executor.schedule(() -> expired(deadline), delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        boolean cancel(Object handle) {
+            return ((ScheduledFuture<?>) handle).cancel(false);
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
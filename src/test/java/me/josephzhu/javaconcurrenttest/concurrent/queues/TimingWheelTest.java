@@ -0,0 +1,103 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+public class TimingWheelTest {
+
+    /**
+     * With a 1ms tick and 4 buckets per level, level 1 starts at 4 ticks, level 2 at 16, level 3 at 64 and beyond
+     * 256 ticks timeouts are parked in the last bucket of level 3. Every delay up to 400ms crosses these boundaries
+     * at some offset from the current tick, and each timeout must fire once, not before its deadline.
+     */
+    @Test
+    public void levels() throws InterruptedException {
+        int count = 400;
+        Map<Integer, Long> fired = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(count);
+        List<TimingWheel.Timeout<Integer>> timeouts = new ArrayList<>();
+        try (TimingWheel<Integer> timingWheel = new TimingWheel<>(1, TimeUnit.MILLISECONDS, 4, delay -> {
+            fired.put(delay, System.nanoTime());
+            latch.countDown();
+        })) {
+            for (int delay = 0; delay < count; delay++) {
+                timeouts.add(timingWheel.schedule(delay, delay, TimeUnit.MILLISECONDS));
+                // Spread the schedules over several ticks, so the current tick isn't always at the same offset
+                if (delay % 50 == 0)
+                    TimeUnit.MILLISECONDS.sleep(3);
+            }
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(0, timingWheel.pendingTimeouts());
+        }
+        Assert.assertEquals(count, fired.size());
+        long maxLateness = 0;
+        for (TimingWheel.Timeout<Integer> timeout : timeouts) {
+            long lateness = fired.get(timeout.getTask()) - timeout.getDeadline();
+            Assert.assertTrue("delay " + timeout.getTask() + " fired " + lateness + "ns early", lateness >= 0);
+            Assert.assertTrue(timeout.isExpired());
+            maxLateness = Math.max(maxLateness, lateness);
+        }
+        log.info("max lateness:{}ms", TimeUnit.NANOSECONDS.toMillis(maxLateness));
+    }
+
+    @Test
+    public void pastDeadline() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        try (TimingWheel<String> timingWheel = new TimingWheel<>(10, TimeUnit.MILLISECONDS, 8, task -> latch.countDown())) {
+            long begin = System.nanoTime();
+            timingWheel.schedule("past", -1, TimeUnit.SECONDS);
+            Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+            log.info("past deadline fired after {}ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        }
+    }
+
+    // Cancelled right away, most likely before the wheel thread has taken it out of the scheduled queue
+    @Test
+    public void cancelBeforeTransfer() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        try (TimingWheel<String> timingWheel = new TimingWheel<>(10, TimeUnit.MILLISECONDS, 8, task -> latch.countDown())) {
+            TimingWheel.Timeout<String> timeout = timingWheel.schedule("cancelled", 50, TimeUnit.MILLISECONDS);
+            Assert.assertTrue(timeout.cancel());
+            Assert.assertFalse(timeout.cancel());
+            Assert.assertEquals(0, timingWheel.pendingTimeouts());
+            Assert.assertFalse(latch.await(200, TimeUnit.MILLISECONDS));
+            Assert.assertTrue(timeout.isCancelled());
+        }
+    }
+
+    /**
+     * 20 ticks of 100ms with 4 buckets per level start in level 2, move to level 1 when the wheel reaches
+     * tick 16 and to level 0 at tick 20. Cancelled at 1.7s, between the two.
+     */
+    @Test
+    public void cancelAfterCascade() throws InterruptedException {
+        List<String> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        try (TimingWheel<String> timingWheel = new TimingWheel<>(100, TimeUnit.MILLISECONDS, 4, task -> {
+            fired.add(task);
+            latch.countDown();
+        })) {
+            TimingWheel.Timeout<String> timeout = timingWheel.schedule("cancelled", 2000, TimeUnit.MILLISECONDS);
+            TimingWheel.Timeout<String> control = timingWheel.schedule("control", 2000, TimeUnit.MILLISECONDS);
+            TimeUnit.MILLISECONDS.sleep(1700);
+            Assert.assertTrue(timeout.cancel());
+            Assert.assertEquals(1, timingWheel.pendingTimeouts());
+            Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+            Assert.assertTrue(control.isExpired());
+            // Same deadline as the control, so it would have fired in the same tick
+            Assert.assertEquals(1, fired.size());
+            Assert.assertTrue(timeout.isCancelled());
+            Assert.assertFalse(timeout.isExpired());
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import me.josephzhu.javaconcurrenttest.util.SpinWait;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * How a thread waits while a lock-free queue is full or empty. idle() is called in a loop with the value it
+ * returned last time (starting with 0), so a strategy can escalate from spinning to yielding to parking.
+ * Queues call signalAll() after every successful offer or poll, only the blocking strategy uses it.
+ * <p>
+ * From lowest latency and most CPU to highest latency and least CPU: spin (busy spin), yielding (spin, then
+ * yield), parking (spin, then yield, then park), timedParking (park right away) and blocking (wait on a condition
+ * until signalled).
+ */
+public interface WaitStrategy {
+
+    int idle(int counter);
+
+    default void signalAll() {
+    }
+
+    static WaitStrategy spin() {
+        return new Spin();
+    }
+
+    static WaitStrategy yielding() {
+        return new Yielding(100);
+    }
+
+    static WaitStrategy parking() {
+        return new Parking(100, 100, 1000);
+    }
+
+    static WaitStrategy timedParking() {
+        return new TimedParking(TimeUnit.MICROSECONDS.toNanos(100));
+    }
+
+    static WaitStrategy blocking() {
+        return new Blocking(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    static WaitStrategy of(String name) {
+        switch (name) {
+            case "spin":
+                return spin();
+            case "yielding":
+                return yielding();
+            case "parking":
+                return parking();
+            case "timedParking":
+                return timedParking();
+            case "blocking":
+                return blocking();
+            default:
+                throw new IllegalArgumentException("Unknown wait strategy:" + name);
+        }
+    }
+
+    class Spin implements WaitStrategy {
+        @Override
+        public int idle(int counter) {
+            SpinWait.onSpinWait();
+            return counter + 1;
+        }
+
+        @Override
+        public String toString() {
+            return "spin";
+        }
+    }
+
+    class Yielding implements WaitStrategy {
+        private final int spinTries;
+
+        public Yielding(int spinTries) {
+            this.spinTries = spinTries;
+        }
+
+        @Override
+        public int idle(int counter) {
+            if (counter < spinTries)
+                SpinWait.onSpinWait();
+            else
+                Thread.yield();
+            return counter + 1;
+        }
+
+        @Override
+        public String toString() {
+            return "yielding";
+        }
+    }
+
+    class Parking implements WaitStrategy {
+        private final int spinTries;
+        private final int yieldTries;
+        private final long parkNanos;
+
+        public Parking(int spinTries, int yieldTries, long parkNanos) {
+            this.spinTries = spinTries;
+            this.yieldTries = yieldTries;
+            this.parkNanos = parkNanos;
+        }
+
+        @Override
+        public int idle(int counter) {
+            if (counter < spinTries) {
+                SpinWait.onSpinWait();
+                return counter + 1;
+            }
+            if (counter < spinTries + yieldTries) {
+                Thread.yield();
+                return counter + 1;
+            }
+            LockSupport.parkNanos(parkNanos);
+            return counter;
+        }
+
+        @Override
+        public String toString() {
+            return "parking";
+        }
+    }
+
+    class TimedParking implements WaitStrategy {
+        private final long parkNanos;
+
+        public TimedParking(long parkNanos) {
+            this.parkNanos = parkNanos;
+        }
+
+        @Override
+        public int idle(int counter) {
+            LockSupport.parkNanos(parkNanos);
+            return counter + 1;
+        }
+
+        @Override
+        public String toString() {
+            return "timedParking";
+        }
+    }
+
+    /**
+     * Waits on a condition until the other side signals. The first idle() call only takes a token (the current
+     * generation) and returns, so the caller checks the queue once more; the next calls wait until signalAll()
+     * has moved the generation on. A signal between taking the token and waiting is therefore never lost, and
+     * signalAll() only takes the lock when somebody waits. A wait still ends after maxWait so the timed queue
+     * methods can keep their deadlines. One instance can be shared by producers and consumers.
+     */
+    class Blocking implements WaitStrategy {
+        private final long maxWaitNanos;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition signalled = lock.newCondition();
+        private final AtomicInteger waiters = new AtomicInteger();
+        // Odd numbers only, so a token is never the initial counter 0
+        private final AtomicInteger generation = new AtomicInteger(1);
+
+        public Blocking(long maxWaitNanos) {
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        @Override
+        public int idle(int counter) {
+            if (counter == 0)
+                return generation.get();
+            lock.lock();
+            waiters.incrementAndGet();
+            try {
+                if (generation.get() == counter)
+                    signalled.awaitNanos(maxWaitNanos);
+            } catch (InterruptedException e) {
+                // The queue loops check the interrupt flag and throw
+                Thread.currentThread().interrupt();
+            } finally {
+                waiters.decrementAndGet();
+                lock.unlock();
+            }
+            return generation.get();
+        }
+
+        @Override
+        public void signalAll() {
+            generation.addAndGet(2);
+            if (waiters.get() == 0)
+                return;
+            lock.lock();
+            try {
+                signalled.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "blocking";
+        }
+    }
+}
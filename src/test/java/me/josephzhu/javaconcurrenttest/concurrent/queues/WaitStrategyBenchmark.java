@@ -0,0 +1,118 @@
+package me.josephzhu.javaconcurrenttest.concurrent.queues;
+
+import lombok.extern.slf4j.Slf4j;
+import me.josephzhu.javaconcurrenttest.benchmark.BenchmarkReport;
+import me.josephzhu.javaconcurrenttest.benchmark.LatencyHistogram;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * One producer and one consumer on an SpscArrayQueue for -Dwait.seconds with each wait strategy, at an idle
+ * (-Dwait.idleRate), a moderate (-Dwait.moderateRate) and a saturated (as fast as put() goes) load.
+ * Reports the latency from send to take and the CPU time the consumer burned, which is the trade-off: the
+ * strategies that react fastest keep a core busy even when nothing arrives.
+ */
+@Slf4j
+public class WaitStrategyBenchmark {
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private static final Long STOP = -1L;
+
+    int seconds = Integer.getInteger("wait.seconds", 3);
+    int idleRate = Integer.getInteger("wait.idleRate", 100);
+    int moderateRate = Integer.getInteger("wait.moderateRate", 10000);
+    int capacity = Integer.getInteger("wait.capacity", 1024);
+
+    @Test
+    public void test() throws InterruptedException {
+        List<String> strategies = Arrays.stream(System.getProperty("wait.strategies", "spin,yielding,parking,timedParking,blocking").split(","))
+                .map(String::trim).collect(Collectors.toList());
+
+        BenchmarkReport report = new BenchmarkReport("wait-strategy");
+        for (String strategy : strategies) {
+            report.add(benchmark(strategy, "idle", idleRate));
+            report.add(benchmark(strategy, "moderate", moderateRate));
+            report.add(benchmark(strategy, "saturated", 0));
+        }
+        report.write();
+    }
+
+    // rate 0 means saturated: the producer puts as fast as the queue takes it
+    private Map<String, Object> benchmark(String strategy, String load, int rate) throws InterruptedException {
+        log.info("Begin strategy:[{}], load:{}", strategy, load);
+        System.gc();
+        SpscArrayQueue<Long> queue = new SpscArrayQueue<>(capacity, WaitStrategy.of(strategy));
+        LatencyHistogram latency = new LatencyHistogram();
+        long[] consumerCpuNanos = new long[1];
+        long[] producerCpuNanos = new long[1];
+
+        Thread consumer = new Thread(() -> {
+            long cpuBegin = threadMXBean.getCurrentThreadCpuTime();
+            try {
+                while (true) {
+                    Long sent = queue.take();
+                    if (sent.equals(STOP))
+                        break;
+                    latency.record(System.nanoTime() - sent);
+                }
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            consumerCpuNanos[0] = threadMXBean.getCurrentThreadCpuTime() - cpuBegin;
+        }, "consumer");
+        Thread producer = new Thread(() -> {
+            long cpuBegin = threadMXBean.getCurrentThreadCpuTime();
+            long start = System.nanoTime();
+            long end = start + TimeUnit.SECONDS.toNanos(seconds);
+            try {
+                if (rate == 0) {
+                    while (System.nanoTime() < end) {
+                        queue.put(System.nanoTime());
+                    }
+                } else {
+                    long interval = 1000000000L / rate;
+                    for (long intended = start; intended < end; intended += interval) {
+                        long now;
+                        while ((now = System.nanoTime()) < intended) {
+                            LockSupport.parkNanos(intended - now);
+                        }
+                        queue.put(intended);
+                    }
+                }
+                queue.put(STOP);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            producerCpuNanos[0] = threadMXBean.getCurrentThreadCpuTime() - cpuBegin;
+        }, "producer");
+
+        long begin = System.nanoTime();
+        consumer.start();
+        producer.start();
+        producer.join();
+        consumer.join();
+        long elapsed = System.nanoTime() - begin;
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("strategy", strategy);
+        row.put("load", load);
+        row.put("targetRate", rate);
+        row.put("elements", latency.getTotalCount());
+        row.put("opsPerSecond", latency.getTotalCount() * 1000000000L / Math.max(1, elapsed));
+        row.put("consumerCpuPercent", consumerCpuNanos[0] * 100 / Math.max(1, elapsed));
+        row.put("producerCpuPercent", producerCpuNanos[0] * 100 / Math.max(1, elapsed));
+        row.put("consumerCpuNanosPerElement", consumerCpuNanos[0] / Math.max(1, latency.getTotalCount()));
+        row.putAll(latency.summary("latency"));
+        log.info("Finish strategy:[{}], load:{}, result:{}", strategy, load, row);
+        return row;
+    }
+}
@@ -0,0 +1,127 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.function.IntSupplier;
+
+/**
+ * Records wait time, hold time, contention and queue length of the delegate into its {@link LockMetrics}.
+ * Reentrant acquisitions are counted but only the outermost one is timed as a hold. Time spent in
+ * Condition.await() is part of the hold time.
+ */
+abstract class AbstractInstrumentedLock implements Lock {
+
+    protected final Lock delegate;
+    protected final LockMetrics metrics;
+
+    AbstractInstrumentedLock(String name, Lock delegate, IntSupplier queueLengthProbe) {
+        this.delegate = delegate;
+        this.metrics = LockMetricsRegistry.metrics(name);
+        metrics.queueLengthProbe(queueLengthProbe);
+    }
+
+    // Hold count of the current thread, read right after acquiring and right before releasing
+    protected abstract int holdCount();
+
+    protected abstract void holdStart(long nanos);
+
+    protected abstract long holdStart();
+
+    public LockMetrics getMetrics() {
+        return metrics;
+    }
+
+    // tryLock() barges even on a fair lock, the timed version with zero timeout respects fairness
+    private boolean tryLockWithoutWaiting() {
+        try {
+            return delegate.tryLock(0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void acquired(long waitNanos) {
+        metrics.acquired(waitNanos);
+        if (holdCount() == 1)
+            holdStart(System.nanoTime());
+    }
+
+    @Override
+    public void lock() {
+        if (tryLockWithoutWaiting()) {
+            acquired(0);
+            return;
+        }
+        metrics.contended();
+        long begin = System.nanoTime();
+        delegate.lock();
+        acquired(System.nanoTime() - begin);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (delegate.tryLock(0, TimeUnit.NANOSECONDS)) {
+            acquired(0);
+            return;
+        }
+        metrics.contended();
+        long begin = System.nanoTime();
+        try {
+            delegate.lockInterruptibly();
+        } catch (InterruptedException e) {
+            metrics.failed(System.nanoTime() - begin);
+            throw e;
+        }
+        acquired(System.nanoTime() - begin);
+    }
+
+    @Override
+    public boolean tryLock() {
+        if (delegate.tryLock()) {
+            acquired(0);
+            return true;
+        }
+        metrics.contended();
+        metrics.failed(0);
+        return false;
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        if (delegate.tryLock(0, TimeUnit.NANOSECONDS)) {
+            acquired(0);
+            return true;
+        }
+        metrics.contended();
+        long begin = System.nanoTime();
+        boolean locked = false;
+        try {
+            locked = delegate.tryLock(time, unit);
+        } finally {
+            if (locked)
+                acquired(System.nanoTime() - begin);
+            else
+                metrics.failed(System.nanoTime() - begin);
+        }
+        return locked;
+    }
+
+    @Override
+    public void unlock() {
+        if (holdCount() == 1)
+            metrics.released(System.nanoTime() - holdStart());
+        delegate.unlock();
+    }
+
+    @Override
+    public Condition newCondition() {
+        return delegate.newCondition();
+    }
+
+    @Override
+    public String toString() {
+        return metrics.getName() + "=" + delegate;
+    }
+}
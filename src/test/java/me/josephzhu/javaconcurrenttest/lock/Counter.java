@@ -0,0 +1,172 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import me.josephzhu.javaconcurrenttest.util.PaddedAtomicLong;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request counter strategies compared by {@link CounterBenchmark}. The thread-confined and batched counters only
+ * give an exact sum() once the incrementing threads have finished (e.g. after awaitTermination), while running
+ * they may lag behind.
+ */
+public interface Counter {
+
+    void increment();
+
+    long sum();
+
+    static Counter synchronizedCounter() {
+        return new SynchronizedCounter();
+    }
+
+    static Counter atomicInteger() {
+        return new AtomicIntegerCounter();
+    }
+
+    static Counter longAdder() {
+        return new LongAdderCounter();
+    }
+
+    static Counter threadConfined() {
+        return new ThreadConfinedCounter();
+    }
+
+    static Counter batched(int batchSize) {
+        return new BatchedCounter(batchSize);
+    }
+
+    class SynchronizedCounter implements Counter {
+        private final Object locker = new Object();
+        private long counter;
+
+        @Override
+        public void increment() {
+            synchronized (locker) {
+                counter++;
+            }
+        }
+
+        @Override
+        public long sum() {
+            synchronized (locker) {
+                return counter;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "synchronized";
+        }
+    }
+
+    class AtomicIntegerCounter implements Counter {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public void increment() {
+            counter.incrementAndGet();
+        }
+
+        @Override
+        public long sum() {
+            return counter.get();
+        }
+
+        @Override
+        public String toString() {
+            return "atomicInteger";
+        }
+    }
+
+    class LongAdderCounter implements Counter {
+        private final LongAdder counter = new LongAdder();
+
+        @Override
+        public void increment() {
+            counter.increment();
+        }
+
+        @Override
+        public long sum() {
+            return counter.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "longAdder";
+        }
+    }
+
+    // Every thread counts in its own padded cell, sum() merges the cells
+    class ThreadConfinedCounter implements Counter {
+        private final Queue<PaddedAtomicLong> cells = new ConcurrentLinkedQueue<>();
+        private final ThreadLocal<PaddedAtomicLong> cell = ThreadLocal.withInitial(() -> {
+            PaddedAtomicLong cell = new PaddedAtomicLong();
+            cells.add(cell);
+            return cell;
+        });
+
+        @Override
+        public void increment() {
+            PaddedAtomicLong cell = this.cell.get();
+            // Only this thread writes the cell, an ordered store is enough for sum() to see it
+            cell.lazySet(cell.get() + 1);
+        }
+
+        @Override
+        public long sum() {
+            return cells.stream().mapToLong(PaddedAtomicLong::get).sum();
+        }
+
+        @Override
+        public String toString() {
+            return "threadConfined";
+        }
+    }
+
+    // Every thread counts locally and publishes to the shared counter each batchSize increments
+    class BatchedCounter implements Counter {
+        private final int batchSize;
+        private final AtomicLong published = new AtomicLong();
+        private final Queue<PaddedAtomicLong> cells = new ConcurrentLinkedQueue<>();
+        private final ThreadLocal<PaddedAtomicLong> cell = ThreadLocal.withInitial(() -> {
+            PaddedAtomicLong cell = new PaddedAtomicLong();
+            cells.add(cell);
+            return cell;
+        });
+
+        BatchedCounter(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public void increment() {
+            PaddedAtomicLong cell = this.cell.get();
+            long value = cell.get() + 1;
+            if (value == batchSize) {
+                published.addAndGet(batchSize);
+                value = 0;
+            }
+            cell.lazySet(value);
+        }
+
+        // Lags behind by less than batchSize per thread
+        public long published() {
+            return published.get();
+        }
+
+        @Override
+        public long sum() {
+            return published.get() + cells.stream().mapToLong(PaddedAtomicLong::get).sum();
+        }
+
+        @Override
+        public String toString() {
+            return "batched" + batchSize;
+        }
+    }
+}
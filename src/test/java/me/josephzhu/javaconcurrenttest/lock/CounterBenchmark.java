@@ -0,0 +1,79 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import lombok.extern.slf4j.Slf4j;
+import me.josephzhu.javaconcurrenttest.benchmark.BenchmarkReport;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The LockMisuse counter with every Counter strategy, submitted through a fixed thread pool the same way.
+ * -Dcounter.threads, -Dcounter.taskCount, -Dcounter.incrementsPerTask and -Dcounter.batchSize change the load.
+ */
+@Slf4j
+public class CounterBenchmark {
+
+    private static final int TASK_COUNT = Integer.getInteger("counter.taskCount", 100000);
+    private static final int INCREMENTS_PER_TASK = Integer.getInteger("counter.incrementsPerTask", 100);
+    private static final int BATCH_SIZE = Integer.getInteger("counter.batchSize", 1000);
+
+    @Test
+    public void test() throws InterruptedException {
+        List<Supplier<Counter>> counters = Arrays.asList(Counter::synchronizedCounter, Counter::atomicInteger,
+                Counter::longAdder, Counter::threadConfined, () -> Counter.batched(BATCH_SIZE));
+
+        List<Integer> threadCounts = threadCounts();
+        BenchmarkReport report = new BenchmarkReport("lock-counter");
+        for (int threadCount : threadCounts) {
+            for (Supplier<Counter> counter : counters) {
+                report.add(benchmark(counter.get(), threadCount));
+            }
+        }
+        report.write();
+
+        int maxThreadCount = threadCounts.get(threadCounts.size() - 1);
+        report.getRows().stream()
+                .filter(row -> row.get("threadCount").equals(maxThreadCount))
+                .max(Comparator.comparingLong(row -> (Long) row.get("opsPerSecond")))
+                .ifPresent(row -> log.info("Fastest counter with {} threads:{}", row.get("threadCount"), row.get("strategy")));
+    }
+
+    private static List<Integer> threadCounts() {
+        return Arrays.stream(System.getProperty("counter.threads", "10,100").split(","))
+                .map(String::trim).map(Integer::valueOf).collect(Collectors.toList());
+    }
+
+    private Map<String, Object> benchmark(Counter counter, int threadCount) throws InterruptedException {
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        long begin = System.currentTimeMillis();
+        IntStream.rangeClosed(1, TASK_COUNT).forEach(i -> executorService.submit(() -> {
+            for (int j = 0; j < INCREMENTS_PER_TASK; j++) {
+                counter.increment();
+            }
+        }));
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.HOURS);
+        long duration = System.currentTimeMillis() - begin;
+        long operations = (long) TASK_COUNT * INCREMENTS_PER_TASK;
+        Assert.assertEquals(operations, counter.sum());
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("strategy", counter.toString());
+        row.put("threadCount", threadCount);
+        row.put("operations", operations);
+        row.put("durationMillis", duration);
+        row.put("opsPerSecond", operations * 1000 / Math.max(1, duration));
+        return row;
+    }
+}
@@ -0,0 +1,31 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+class FairReentrantLockTask extends LockTask {
+    private static ReentrantLock locker = new ReentrantLock(true);
+
+    public FairReentrantLockTask(Boolean write) {
+        super(write);
+    }
+
+    @Override
+    protected void doTask() {
+        locker.lock();
+
+        try {
+
+            if (write) {
+                increase();
+            } else {
+                long value = read();
+                //log.debug("{}, {}", this.getClass().getSimpleName(), value);
+            }
+        } finally {
+            locker.unlock();
+        }
+    }
+}
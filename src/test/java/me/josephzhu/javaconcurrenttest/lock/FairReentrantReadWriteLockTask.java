@@ -0,0 +1,34 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+class FairReentrantReadWriteLockTask extends LockTask {
+    private static ReentrantReadWriteLock locker = new ReentrantReadWriteLock(true);
+
+    public FairReentrantReadWriteLockTask(Boolean write) {
+        super(write);
+    }
+
+    @Override
+    protected void doTask() {
+        if (write) {
+            locker.writeLock().lock();
+            try {
+                increase();
+            } finally {
+                locker.writeLock().unlock();
+            }
+        } else {
+            locker.readLock().lock();
+            try {
+                long value = read();
+                //log.debug("{}, {}", this.getClass().getSimpleName(), value);
+            } finally {
+                locker.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ReentrantLock that reports into {@link LockMetricsRegistry} under its name. Locks created with the same name
+ * share their metrics.
+ */
+public class InstrumentedLock extends AbstractInstrumentedLock {
+
+    private final ReentrantLock reentrantLock;
+    // Only touched by the owner while it holds the lock
+    private long holdStart;
+
+    public InstrumentedLock(String name) {
+        this(name, new ReentrantLock());
+    }
+
+    public InstrumentedLock(String name, boolean fair) {
+        this(name, new ReentrantLock(fair));
+    }
+
+    public InstrumentedLock(String name, ReentrantLock reentrantLock) {
+        super(name, reentrantLock, reentrantLock::getQueueLength);
+        this.reentrantLock = reentrantLock;
+    }
+
+    @Override
+    protected int holdCount() {
+        return reentrantLock.getHoldCount();
+    }
+
+    @Override
+    protected void holdStart(long nanos) {
+        holdStart = nanos;
+    }
+
+    @Override
+    protected long holdStart() {
+        return holdStart;
+    }
+
+    public boolean isLocked() {
+        return reentrantLock.isLocked();
+    }
+
+    public int getQueueLength() {
+        return reentrantLock.getQueueLength();
+    }
+}
@@ -0,0 +1,119 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Slf4j
+public class InstrumentedLockTest {
+
+    @After
+    public void after() {
+        LockMetricsRegistry.stopSampling();
+        LockMetricsRegistry.clear();
+    }
+
+    private static void join(List<Thread> threads) {
+        threads.forEach(thread -> {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    @Test
+    public void test() throws InterruptedException {
+        InstrumentedLock instrumentedLock = new InstrumentedLock("test", true);
+        LockMetricsRegistry.startSampling(10, TimeUnit.MILLISECONDS);
+        IntStream.rangeClosed(1, 10).forEach(i -> instrumentedLock.lock());
+
+        List<Thread> threads = IntStream.rangeClosed(1, 10).mapToObj(i -> new Thread(() -> {
+            instrumentedLock.lock();
+            try {
+                log.debug("Got lock");
+            } finally {
+                instrumentedLock.unlock();
+            }
+        })).collect(Collectors.toList());
+        threads.forEach(Thread::start);
+        while (instrumentedLock.getQueueLength() < threads.size()) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        TimeUnit.MILLISECONDS.sleep(100);
+        IntStream.rangeClosed(1, 10).forEach(i -> instrumentedLock.unlock());
+        join(threads);
+
+        LockMetrics metrics = instrumentedLock.getMetrics();
+        log.info("{}", LockMetricsRegistry.dump().toCsv());
+        log.info("\n{}", LockMetricsRegistry.scrape());
+        Assert.assertEquals(20, metrics.getAcquisitions());
+        Assert.assertEquals(10, metrics.getContentions());
+        Assert.assertEquals(10, metrics.getMaxQueueLength());
+        Assert.assertTrue(metrics.getWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+        Assert.assertTrue(metrics.getHoldNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void tryLock() throws Exception {
+        InstrumentedLock instrumentedLock = new InstrumentedLock("tryLock");
+        instrumentedLock.lock();
+        // Assert on the test thread, a failed assertion on another thread doesn't fail the test
+        FutureTask<List<Boolean>> attempts = new FutureTask<>(() ->
+                Arrays.asList(instrumentedLock.tryLock(), instrumentedLock.tryLock(50, TimeUnit.MILLISECONDS)));
+        Thread thread = new Thread(attempts);
+        thread.start();
+        thread.join();
+        instrumentedLock.unlock();
+        Assert.assertEquals(Arrays.asList(false, false), attempts.get());
+
+        LockMetrics metrics = instrumentedLock.getMetrics();
+        log.info("{}", metrics);
+        Assert.assertEquals(1, metrics.getAcquisitions());
+        Assert.assertEquals(2, metrics.getContentions());
+        Assert.assertEquals(2L, metrics.snapshot().get("failures"));
+        Assert.assertTrue(metrics.getWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void readWrite() throws InterruptedException {
+        InstrumentedReadWriteLock instrumentedReadWriteLock = new InstrumentedReadWriteLock("readWrite");
+        instrumentedReadWriteLock.writeLock().lock();
+
+        List<Thread> threads = IntStream.rangeClosed(1, 10).mapToObj(i -> new Thread(() -> {
+            instrumentedReadWriteLock.readLock().lock();
+            try {
+                TimeUnit.MILLISECONDS.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                instrumentedReadWriteLock.readLock().unlock();
+            }
+        })).collect(Collectors.toList());
+        threads.forEach(Thread::start);
+        while (instrumentedReadWriteLock.getQueueLength() < threads.size()) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        instrumentedReadWriteLock.writeLock().unlock();
+        join(threads);
+
+        LockMetrics read = instrumentedReadWriteLock.readLock().getMetrics();
+        LockMetrics write = instrumentedReadWriteLock.writeLock().getMetrics();
+        log.info("{}", LockMetricsRegistry.dump().toCsv());
+        Assert.assertEquals("readWrite.read", read.getName());
+        Assert.assertEquals(10, read.getAcquisitions());
+        Assert.assertEquals(10, read.getContentions());
+        Assert.assertTrue(read.getHoldNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+        Assert.assertEquals(1, write.getAcquisitions());
+        Assert.assertEquals(0, write.getContentions());
+    }
+}
@@ -0,0 +1,90 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ReentrantReadWriteLock whose read and write lock report into {@link LockMetricsRegistry} as name.read and
+ * name.write. The queue length of both is the one of the shared wait queue.
+ */
+public class InstrumentedReadWriteLock implements ReadWriteLock {
+
+    private final ReentrantReadWriteLock reentrantReadWriteLock;
+    private final ReadLock readLock;
+    private final WriteLock writeLock;
+
+    public InstrumentedReadWriteLock(String name) {
+        this(name, new ReentrantReadWriteLock());
+    }
+
+    public InstrumentedReadWriteLock(String name, boolean fair) {
+        this(name, new ReentrantReadWriteLock(fair));
+    }
+
+    public InstrumentedReadWriteLock(String name, ReentrantReadWriteLock reentrantReadWriteLock) {
+        this.reentrantReadWriteLock = reentrantReadWriteLock;
+        this.readLock = new ReadLock(name + ".read");
+        this.writeLock = new WriteLock(name + ".write");
+    }
+
+    @Override
+    public ReadLock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public WriteLock writeLock() {
+        return writeLock;
+    }
+
+    public int getQueueLength() {
+        return reentrantReadWriteLock.getQueueLength();
+    }
+
+    public class ReadLock extends AbstractInstrumentedLock {
+        // Many readers hold the lock at once, so each keeps its own start time
+        private final ThreadLocal<long[]> holdStart = ThreadLocal.withInitial(() -> new long[1]);
+
+        ReadLock(String name) {
+            super(name, reentrantReadWriteLock.readLock(), reentrantReadWriteLock::getQueueLength);
+        }
+
+        @Override
+        protected int holdCount() {
+            return reentrantReadWriteLock.getReadHoldCount();
+        }
+
+        @Override
+        protected void holdStart(long nanos) {
+            holdStart.get()[0] = nanos;
+        }
+
+        @Override
+        protected long holdStart() {
+            return holdStart.get()[0];
+        }
+    }
+
+    public class WriteLock extends AbstractInstrumentedLock {
+        private long holdStart;
+
+        WriteLock(String name) {
+            super(name, reentrantReadWriteLock.writeLock(), reentrantReadWriteLock::getQueueLength);
+        }
+
+        @Override
+        protected int holdCount() {
+            return reentrantReadWriteLock.getWriteHoldCount();
+        }
+
+        @Override
+        protected void holdStart(long nanos) {
+            holdStart = nanos;
+        }
+
+        @Override
+        protected long holdStart() {
+            return holdStart;
+        }
+    }
+}
@@ -3,17 +3,17 @@ package me.josephzhu.javaconcurrenttest.lock;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import me.josephzhu.javaconcurrenttest.benchmark.BenchmarkReport;
+import me.josephzhu.javaconcurrenttest.benchmark.LatencyHistogram;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.concurrent.locks.StampedLock;
-import java.util.stream.IntStream;
 
 @Slf4j
 public class LockBenchmark {
@@ -23,48 +23,9 @@ public class LockBenchmark {
     @Test
     public void test() throws Exception {
         List<TestCase> testCases = new ArrayList<>();
+        LockStrategies.all().forEach(lockStrategy -> testCases.addAll(standardCases(lockStrategy)));
 
-        Arrays.asList(SyncTask.class,
-                ReentrantLockTask.class,
-                FairReentrantLockTask.class,
-                ReentrantReadWriteLockTask.class,
-                FairReentrantReadWriteLockTask.class,
-                StampedLockTask.class
-        ).forEach(syncTaskClass -> {
-            testCases.add(new TestCase(syncTaskClass, 1, 0));
-            testCases.add(new TestCase(syncTaskClass, 10, 0));
-            testCases.add(new TestCase(syncTaskClass, 0, 1));
-            testCases.add(new TestCase(syncTaskClass, 0, 10));
-
-            testCases.add(new TestCase(syncTaskClass, 1, 1));
-            testCases.add(new TestCase(syncTaskClass, 10, 10));
-            testCases.add(new TestCase(syncTaskClass, 50, 50));
-            testCases.add(new TestCase(syncTaskClass, 100, 100));
-            testCases.add(new TestCase(syncTaskClass, 500, 500));
-            testCases.add(new TestCase(syncTaskClass, 1000, 1000));
-
-            testCases.add(new TestCase(syncTaskClass, 1, 10));
-            testCases.add(new TestCase(syncTaskClass, 10, 100));
-            testCases.add(new TestCase(syncTaskClass, 10, 200));
-            testCases.add(new TestCase(syncTaskClass, 10, 500));
-            testCases.add(new TestCase(syncTaskClass, 10, 1000));
-
-            testCases.add(new TestCase(syncTaskClass, 10, 1));
-            testCases.add(new TestCase(syncTaskClass, 100, 10));
-            testCases.add(new TestCase(syncTaskClass, 200, 10));
-            testCases.add(new TestCase(syncTaskClass, 500, 10));
-            testCases.add(new TestCase(syncTaskClass, 1000, 10));
-
-        });
-
-        testCases.forEach(testCase -> {
-            System.gc();
-            try {
-                benchmark(testCase);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        });
+        run(testCases);
 
         StringBuilder stringBuilder = new StringBuilder();
         int index = 0;
@@ -76,240 +37,258 @@ public class LockBenchmark {
             index++;
         }
         System.out.println(stringBuilder.toString());
+        report("lock-benchmark", testCases);
     }
 
-
-    private void benchmark(TestCase testCase) throws Exception {
-        LockTask.counter = 0;
-        log.info("Start benchmark:{}", testCase);
-        CountDownLatch start = new CountDownLatch(1);
-        CountDownLatch finish = new CountDownLatch(testCase.readerThreadCount + testCase.writerThreadCount);
-        if (testCase.readerThreadCount > 0) {
-            LockTask readerTask = (LockTask) testCase.lockTaskClass.getDeclaredConstructor(Boolean.class).newInstance(false);
-            readerTask.start = start;
-            readerTask.finish = finish;
-            readerTask.loopCount = LOOP_COUNT / testCase.readerThreadCount;
-            IntStream.rangeClosed(1, testCase.readerThreadCount)
-                    .mapToObj(__ -> new Thread(readerTask))
-                    .forEach(Thread::start);
-        }
-        if (testCase.writerThreadCount > 0) {
-            LockTask writerTask = (LockTask) testCase.lockTaskClass.getDeclaredConstructor(Boolean.class).newInstance(true);
-            writerTask.start = start;
-            writerTask.finish = finish;
-            writerTask.loopCount = LOOP_COUNT / testCase.writerThreadCount;
-            IntStream.rangeClosed(1, testCase.writerThreadCount)
-                    .mapToObj(__ -> new Thread(writerTask))
-                    .forEach(Thread::start);
-        }
-
-        start.countDown();
-        long begin = System.currentTimeMillis();
-        finish.await();
-        if (testCase.writerThreadCount > 0)
-            Assert.assertEquals(LOOP_COUNT, LockTask.counter);
-        testCase.duration = System.currentTimeMillis() - begin;
-        log.info("Finish benchmark:{}", testCase);
-
-    }
-}
-
-@Slf4j
-abstract class LockTask implements Runnable {
-    protected static volatile long counter;
-    protected boolean write;
-    int loopCount;
-    CountDownLatch start;
-    CountDownLatch finish;
-
-    public LockTask(Boolean write) {
-        this.write = write;
-    }
-
-    @Override
-    public void run() {
-        try {
-            start.await();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        for (int i = 0; i < loopCount; i++) {
-            doTask();
-        }
-        finish.countDown();
+    @Test
+    public void latency() {
+        List<TestCase> testCases = new ArrayList<>();
+        LockStrategies.all().forEach(lockStrategy -> testCases.addAll(standardCases(lockStrategy)));
+        testCases.forEach(testCase -> testCase.recordLatency = true);
+        run(testCases);
+        report("lock-latency", testCases);
     }
 
-    abstract protected void doTask();
-}
-
-@Slf4j
-class SyncTask extends LockTask {
-    private static Object locker = new Object();
-
-    public SyncTask(Boolean write) {
-        super(write);
+    @Test
+    public void striped() {
+        List<TestCase> testCases = new ArrayList<>();
+        LockStrategies.get("SyncTask", "ReentrantLockTask", "StripedLockTask").forEach(lockStrategy -> {
+            testCases.add(new TestCase(lockStrategy, 1, 0));
+            testCases.add(new TestCase(lockStrategy, 10, 0));
+            testCases.add(new TestCase(lockStrategy, 100, 0));
+            testCases.add(new TestCase(lockStrategy, 1000, 0));
+            testCases.add(new TestCase(lockStrategy, 1000, 10));
+            testCases.add(new TestCase(lockStrategy, 1000, 0, LOOP_COUNT, 0, 100));
+        });
+        run(testCases);
+        testCases.stream().filter(testCase -> testCase.lockStrategy.name().equals("StripedLockTask")).forEach(striped ->
+                testCases.stream().filter(testCase -> testCase != striped
+                        && testCase.writerThreadCount == striped.writerThreadCount
+                        && testCase.readerThreadCount == striped.readerThreadCount
+                        && testCase.criticalSectionLength == striped.criticalSectionLength)
+                        .forEach(baseline -> log.info("StripedLockTask vs {}, writers:{}, readers:{}, criticalSection:{}, speedup:{}",
+                                baseline.lockStrategy.name(), striped.writerThreadCount, striped.readerThreadCount, striped.criticalSectionLength,
+                                String.format("%.2f", (double) baseline.duration / Math.max(1, striped.duration)))));
+        report("lock-striped", testCases);
     }
 
-    @Override
-    protected void doTask() {
-        synchronized (locker) {
-            if (write) {
-                counter++;
-            } else {
-                long value = counter + 1;
-                //log.debug("{}, {}", this.getClass().getSimpleName(), value);
-            }
-        }
+    @Test
+    public void readMostly() {
+        List<TestCase> testCases = new LockBenchmarkMatrix()
+                .lockStrategies(LockStrategies.get("ReentrantLockTask",
+                        "ReentrantReadWriteLockTask",
+                        "FairReentrantReadWriteLockTask",
+                        "ReentrantReadWriteLockDowngradeTask",
+                        "StampedLockTask",
+                        "StampedLockUpgradeTask"))
+                .readRatios(Arrays.asList(0.9, 0.99))
+                .criticalSectionLengths(Arrays.asList(0, 100))
+                .recordLatency(true)
+                .testCases();
+        run(testCases);
+        report("lock-read-mostly", testCases);
     }
-}
 
-@Slf4j
-class ReentrantLockTask extends LockTask {
-    private static ReentrantLock locker = new ReentrantLock();
-
-    public ReentrantLockTask(Boolean write) {
-        super(write);
+    @Test
+    public void falseSharing() {
+        List<TestCase> testCases = new LockBenchmarkMatrix()
+                .threadCounts(Arrays.asList(2, 8, 64, 256))
+                .layouts(Arrays.asList(LockTask.Layout.PLAIN, LockTask.Layout.PADDED))
+                .testCases();
+        run(testCases);
+        report("lock-layout", testCases);
+
+        BenchmarkReport report = new BenchmarkReport("lock-false-sharing");
+        testCases.stream().filter(testCase -> testCase.layout == LockTask.Layout.PADDED).forEach(padded ->
+                testCases.stream().filter(testCase -> testCase.layout == LockTask.Layout.PLAIN
+                        && testCase.lockStrategy == padded.lockStrategy
+                        && testCase.writerThreadCount == padded.writerThreadCount
+                        && testCase.readerThreadCount == padded.readerThreadCount
+                        && testCase.readerLoopCount == padded.readerLoopCount
+                        && testCase.criticalSectionLength == padded.criticalSectionLength)
+                        .forEach(plain -> {
+                            long plainOps = plain.operations() * 1000 / Math.max(1, plain.duration);
+                            long paddedOps = padded.operations() * 1000 / Math.max(1, padded.duration);
+                            Map<String, Object> row = new LinkedHashMap<>();
+                            row.put("strategy", padded.lockStrategy.name());
+                            row.put("writerThreadCount", padded.writerThreadCount);
+                            row.put("readerThreadCount", padded.readerThreadCount);
+                            row.put("reads", padded.reads());
+                            row.put("criticalSectionLength", padded.criticalSectionLength);
+                            row.put("plainOpsPerSecond", plainOps);
+                            row.put("paddedOpsPerSecond", paddedOps);
+                            row.put("deltaPercent", String.format("%.1f", (paddedOps - plainOps) * 100.0 / Math.max(1, plainOps)));
+                            report.add(row);
+                        }));
+        report.write();
     }
 
-    @Override
-    protected void doTask() {
-        locker.lock();
-        try {
-            if (write) {
-                counter++;
-            } else {
-                long value = counter + 1;
-                //log.debug("{}, {}", this.getClass().getSimpleName(), value);
-            }
-        } finally {
-            locker.unlock();
-        }
+    // Synchronized starts biased (JDK 8 default after 4s), add -XX:BiasedLockingStartupDelay=0 or -XX:-UseBiasedLocking to argLine to compare thin locks
+    @Test
+    public void spinThenPark() {
+        List<LockStrategy> lockStrategies = new ArrayList<>(LockStrategies.get("SyncTask", "ReentrantLockTask", "SpinThenParkLockTask"));
+        Arrays.asList(0, 100, 10000).forEach(spinBudget -> {
+            SpinThenParkLock locker = new SpinThenParkLock(spinBudget);
+            lockStrategies.add(LockStrategy.of("SpinThenParkLockTask-" + spinBudget, write -> new SpinThenParkLockTask(write, locker)));
+        });
+        List<TestCase> testCases = new ArrayList<>();
+        lockStrategies.forEach(lockStrategy -> testCases.addAll(standardCases(lockStrategy)));
+        run(testCases);
+        report("lock-spin-then-park", testCases);
     }
-}
-
-@Slf4j
-class FairReentrantLockTask extends LockTask {
-    private static ReentrantLock locker = new ReentrantLock(true);
 
-    public FairReentrantLockTask(Boolean write) {
-        super(write);
+    @Test
+    public void fair() {
+        List<TestCase> testCases = new LockBenchmarkMatrix()
+                .lockStrategies(LockStrategies.get("ReentrantLockTask", "FairReentrantLockTask", "McsLockTask"))
+                .threadCounts(Arrays.asList(10, 100, 1000))
+                .readRatios(Arrays.asList(0.0, 0.5))
+                .criticalSectionLengths(Arrays.asList(0, 100))
+                .recordLatency(true)
+                .testCases();
+        run(testCases);
+        report("lock-fair", testCases);
     }
 
-    @Override
-    protected void doTask() {
-        locker.lock();
-
-        try {
-
-            if (write) {
-                counter++;
-            } else {
-                long value = counter + 1;
-                //log.debug("{}, {}", this.getClass().getSimpleName(), value);
-            }
-        } finally {
-            locker.unlock();
-        }
+    @Test
+    public void matrix() {
+        List<TestCase> testCases = LockBenchmarkMatrix.fromSystemProperties().testCases();
+        run(testCases);
+        report("lock-matrix", testCases);
     }
-}
-
-@Slf4j
-class ReentrantReadWriteLockTask extends LockTask {
-    private static ReentrantReadWriteLock locker = new ReentrantReadWriteLock();
 
-    public ReentrantReadWriteLockTask(Boolean write) {
-        super(write);
+    private List<TestCase> standardCases(LockStrategy lockStrategy) {
+        List<TestCase> testCases = new ArrayList<>();
+        testCases.add(new TestCase(lockStrategy, 1, 0));
+        testCases.add(new TestCase(lockStrategy, 10, 0));
+        testCases.add(new TestCase(lockStrategy, 0, 1));
+        testCases.add(new TestCase(lockStrategy, 0, 10));
+
+        testCases.add(new TestCase(lockStrategy, 1, 1));
+        testCases.add(new TestCase(lockStrategy, 10, 10));
+        testCases.add(new TestCase(lockStrategy, 50, 50));
+        testCases.add(new TestCase(lockStrategy, 100, 100));
+        testCases.add(new TestCase(lockStrategy, 500, 500));
+        testCases.add(new TestCase(lockStrategy, 1000, 1000));
+
+        testCases.add(new TestCase(lockStrategy, 1, 10));
+        testCases.add(new TestCase(lockStrategy, 10, 100));
+        testCases.add(new TestCase(lockStrategy, 10, 200));
+        testCases.add(new TestCase(lockStrategy, 10, 500));
+        testCases.add(new TestCase(lockStrategy, 10, 1000));
+
+        testCases.add(new TestCase(lockStrategy, 10, 1));
+        testCases.add(new TestCase(lockStrategy, 100, 10));
+        testCases.add(new TestCase(lockStrategy, 200, 10));
+        testCases.add(new TestCase(lockStrategy, 500, 10));
+        testCases.add(new TestCase(lockStrategy, 1000, 10));
+        return testCases;
     }
 
-    @Override
-    protected void doTask() {
-        locker.writeLock().lock();
-
-        if (write) {
+    private void run(List<TestCase> testCases) {
+        testCases.forEach(testCase -> {
+            System.gc();
             try {
-
-                counter++;
-            } finally {
-                locker.writeLock().unlock();
+                benchmark(testCase);
+            } catch (Exception e) {
+                e.printStackTrace();
             }
-        } else {
-            locker.readLock().lock();
+        });
+    }
 
-            try {
-                long value = counter + 1;
-                //log.debug("{}, {}", this.getClass().getSimpleName(), value);
-            } finally {
-                locker.readLock().unlock();
+    private void report(String name, List<TestCase> testCases) {
+        BenchmarkReport report = new BenchmarkReport(name);
+        for (TestCase testCase : testCases) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("strategy", testCase.lockStrategy.name());
+            row.put("writerThreadCount", testCase.writerThreadCount);
+            row.put("readerThreadCount", testCase.readerThreadCount);
+            row.put("criticalSectionLength", testCase.criticalSectionLength);
+            row.put("layout", testCase.layout);
+            row.put("operations", testCase.operations());
+            row.put("durationMillis", testCase.duration);
+            row.put("opsPerSecond", testCase.operations() * 1000 / Math.max(1, testCase.duration));
+            if (testCase.recordLatency) {
+                row.putAll(testCase.readerLatency.summary("reader"));
+                row.putAll(testCase.writerLatency.summary("writer"));
             }
+            report.add(row);
         }
+        report.write();
     }
-}
 
-@Slf4j
-class FairReentrantReadWriteLockTask extends LockTask {
-    private static ReentrantReadWriteLock locker = new ReentrantReadWriteLock(true);
+    private void benchmark(TestCase testCase) throws Exception {
+        LockTask.criticalSectionLength = testCase.criticalSectionLength;
+        LockTask.recordLatency = testCase.recordLatency;
+        LockTask.layout = testCase.layout;
+        log.info("Start benchmark:{}", testCase);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(testCase.readerThreadCount + testCase.writerThreadCount);
+        LockTask writerTask = testCase.lockStrategy.newTask(true);
+        writerTask.reset();
+        List<LockTask> readerTasks = startThreads(testCase, false, testCase.readerThreadCount, testCase.readerLoopCount, start, finish);
+        List<LockTask> writerTasks = startThreads(testCase, true, testCase.writerThreadCount, testCase.writerLoopCount, start, finish);
+
+        start.countDown();
+        long begin = System.currentTimeMillis();
+        finish.await();
+        if (testCase.writerThreadCount > 0)
+            Assert.assertEquals(testCase.writes(), writerTask.count());
+        testCase.duration = System.currentTimeMillis() - begin;
+        testCase.readerLatency = new LatencyHistogram();
+        readerTasks.forEach(task -> testCase.readerLatency.add(task.latency));
+        testCase.writerLatency = new LatencyHistogram();
+        writerTasks.forEach(task -> testCase.writerLatency.add(task.latency));
+        log.info("Finish benchmark:{}", testCase);
 
-    public FairReentrantReadWriteLockTask(Boolean write) {
-        super(write);
     }
 
-    @Override
-    protected void doTask() {
-        if (write) {
-            locker.writeLock().lock();
-            try {
-                counter++;
-            } finally {
-                locker.writeLock().unlock();
-            }
-        } else {
-            locker.readLock().lock();
-            try {
-                long value = counter + 1;
-                //log.debug("{}, {}", this.getClass().getSimpleName(), value);
-            } finally {
-                locker.readLock().unlock();
+    // With the PLAIN layout all threads of a role share one task instance, with PADDED every thread gets its own
+    private List<LockTask> startThreads(TestCase testCase, boolean write, int threadCount, int loopCount,
+                                        CountDownLatch start, CountDownLatch finish) {
+        List<LockTask> tasks = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            if (tasks.isEmpty() || testCase.layout == LockTask.Layout.PADDED) {
+                LockTask task = testCase.lockStrategy.newTask(write);
+                task.start = start;
+                task.finish = finish;
+                task.loopCount = loopCount / threadCount;
+                tasks.add(task);
             }
+            new Thread(tasks.get(tasks.size() - 1)).start();
         }
+        return tasks;
     }
-}
 
-@Slf4j
-class StampedLockTask extends LockTask {
-    private static StampedLock locker = new StampedLock();
+    @ToString
+    @RequiredArgsConstructor
+    static class TestCase {
+        final LockStrategy lockStrategy;
+        final int writerThreadCount;
+        final int readerThreadCount;
+        final int writerLoopCount;
+        final int readerLoopCount;
+        final int criticalSectionLength;
+        boolean recordLatency;
+        LockTask.Layout layout = LockTask.Layout.PLAIN;
+        long duration;
+        LatencyHistogram readerLatency;
+        LatencyHistogram writerLatency;
+
+        TestCase(LockStrategy lockStrategy, int writerThreadCount, int readerThreadCount) {
+            this(lockStrategy, writerThreadCount, readerThreadCount, LOOP_COUNT, LOOP_COUNT, 0);
+        }
 
-    public StampedLockTask(Boolean write) {
-        super(write);
-    }
+        long writes() {
+            return writerThreadCount == 0 ? 0 : (long) writerLoopCount / writerThreadCount * writerThreadCount;
+        }
 
-    @Override
-    protected void doTask() {
-        if (write) {
-            long stamp = locker.writeLock();
-            counter++;
-            locker.unlockWrite(stamp);
-        } else {
-            long stamp = locker.tryOptimisticRead();
-            long value = counter + 1;
+        long reads() {
+            return readerThreadCount == 0 ? 0 : (long) readerLoopCount / readerThreadCount * readerThreadCount;
+        }
 
-            if (!locker.validate(stamp)) {
-                stamp = locker.readLock();
-                try {
-                    value = counter + 1;
-                } finally {
-                    locker.unlockRead(stamp);
-                }
-            }
-            //log.debug("{}, {}", this.getClass().getSimpleName(), value);
+        long operations() {
+            return writes() + reads();
         }
     }
 }
-
-@ToString
-@RequiredArgsConstructor
-class TestCase {
-    final Class lockTaskClass;
-    final int writerThreadCount;
-    final int readerThreadCount;
-    long duration;
-}
@@ -0,0 +1,119 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import me.josephzhu.javaconcurrenttest.lock.LockBenchmark.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the cartesian product of lock strategies, thread counts, read ratios and critical section lengths.
+ * Every dimension can be overridden with system properties, e.g.
+ * -Dlock.strategies=SyncTask,StampedLockTask -Dlock.threads=4,64 -Dlock.readRatios=0.5,0.9 -Dlock.criticalSections=0,100;
+ * -Dlock.latency=true also records the latency of every lock operation, -Dlock.layouts=PLAIN,PADDED compares counter layouts.
+ */
+public class LockBenchmarkMatrix {
+
+    private List<LockStrategy> lockStrategies = LockStrategies.all();
+    private List<Integer> threadCounts = Arrays.asList(2, 20, 200, 2000);
+    private List<Double> readRatios = Arrays.asList(0.0, 0.5, 0.9, 1.0);
+    private List<Integer> criticalSectionLengths = Arrays.asList(0, 100);
+    private int loopCount = LockBenchmark.LOOP_COUNT;
+    private boolean recordLatency;
+    private List<LockTask.Layout> layouts = Arrays.asList(LockTask.Layout.PLAIN);
+
+    public static LockBenchmarkMatrix fromSystemProperties() {
+        LockBenchmarkMatrix matrix = new LockBenchmarkMatrix();
+        String strategies = System.getProperty("lock.strategies");
+        if (strategies != null)
+            matrix.lockStrategies(LockStrategies.get(strategies.split(",")));
+        String threads = System.getProperty("lock.threads");
+        if (threads != null)
+            matrix.threadCounts(parse(threads, Integer::valueOf));
+        String readRatios = System.getProperty("lock.readRatios");
+        if (readRatios != null)
+            matrix.readRatios(parse(readRatios, Double::valueOf));
+        String criticalSections = System.getProperty("lock.criticalSections");
+        if (criticalSections != null)
+            matrix.criticalSectionLengths(parse(criticalSections, Integer::valueOf));
+        matrix.loopCount(Integer.getInteger("lock.loopCount", matrix.loopCount));
+        matrix.recordLatency(Boolean.getBoolean("lock.latency"));
+        String layouts = System.getProperty("lock.layouts");
+        if (layouts != null)
+            matrix.layouts(parse(layouts, LockTask.Layout::valueOf));
+        return matrix;
+    }
+
+    private static <T> List<T> parse(String value, Function<String, T> parser) {
+        return Arrays.stream(value.split(",")).map(String::trim).map(parser).collect(Collectors.toList());
+    }
+
+    public LockBenchmarkMatrix lockStrategies(List<LockStrategy> lockStrategies) {
+        this.lockStrategies = lockStrategies;
+        return this;
+    }
+
+    public LockBenchmarkMatrix threadCounts(List<Integer> threadCounts) {
+        this.threadCounts = threadCounts;
+        return this;
+    }
+
+    public LockBenchmarkMatrix readRatios(List<Double> readRatios) {
+        this.readRatios = readRatios;
+        return this;
+    }
+
+    public LockBenchmarkMatrix criticalSectionLengths(List<Integer> criticalSectionLengths) {
+        this.criticalSectionLengths = criticalSectionLengths;
+        return this;
+    }
+
+    public LockBenchmarkMatrix loopCount(int loopCount) {
+        this.loopCount = loopCount;
+        return this;
+    }
+
+    public LockBenchmarkMatrix recordLatency(boolean recordLatency) {
+        this.recordLatency = recordLatency;
+        return this;
+    }
+
+    public LockBenchmarkMatrix layouts(List<LockTask.Layout> layouts) {
+        this.layouts = layouts;
+        return this;
+    }
+
+    /**
+     * The read ratio splits both the threads and the total loop count between readers and writers.
+     */
+    public List<TestCase> testCases() {
+        List<TestCase> testCases = new ArrayList<>();
+        for (LockStrategy lockStrategy : lockStrategies) {
+            for (int criticalSectionLength : criticalSectionLengths) {
+                for (int threadCount : threadCounts) {
+                    for (double readRatio : readRatios) {
+                        int readerThreadCount = (int) Math.round(threadCount * readRatio);
+                        if (readRatio > 0 && readRatio < 1)
+                            readerThreadCount = Math.max(1, Math.min(threadCount - 1, readerThreadCount));
+                        int writerThreadCount = threadCount - readerThreadCount;
+                        int readerLoopCount = (int) Math.round(loopCount * readRatio);
+                        for (LockTask.Layout layout : layouts) {
+                            TestCase testCase = new TestCase(lockStrategy,
+                                    writerThreadCount,
+                                    readerThreadCount,
+                                    writerThreadCount > 0 ? loopCount - readerLoopCount : 0,
+                                    readerThreadCount > 0 ? readerLoopCount : 0,
+                                    criticalSectionLength);
+                            testCase.recordLatency = recordLatency;
+                            testCase.layout = layout;
+                            testCases.add(testCase);
+                        }
+                    }
+                }
+            }
+        }
+        return testCases;
+    }
+}
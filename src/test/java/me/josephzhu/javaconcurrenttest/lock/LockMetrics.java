@@ -0,0 +1,134 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Lock-free counters of one lock, updated by the instrumented lock wrappers and read by {@link LockMetricsRegistry}.
+ */
+public class LockMetrics {
+
+    private final String name;
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contentions = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder holds = new LongAdder();
+    private final LongAdder holdNanos = new LongAdder();
+    private final LongAccumulator maxHoldNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder queueLengthSamples = new LongAdder();
+    private final LongAdder queueLengthSum = new LongAdder();
+    private final LongAccumulator maxQueueLength = new LongAccumulator(Math::max, 0);
+    private volatile IntSupplier queueLengthProbe = () -> 0;
+
+    LockMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    void queueLengthProbe(IntSupplier queueLengthProbe) {
+        this.queueLengthProbe = queueLengthProbe;
+    }
+
+    void acquired(long waitNanos) {
+        acquisitions.increment();
+        if (waitNanos > 0) {
+            this.waitNanos.add(waitNanos);
+            maxWaitNanos.accumulate(waitNanos);
+        }
+    }
+
+    void failed(long waitNanos) {
+        failures.increment();
+        this.waitNanos.add(waitNanos);
+        maxWaitNanos.accumulate(waitNanos);
+    }
+
+    void contended() {
+        contentions.increment();
+        sampleQueueLength();
+    }
+
+    void released(long holdNanos) {
+        holds.increment();
+        this.holdNanos.add(holdNanos);
+        maxHoldNanos.accumulate(holdNanos);
+    }
+
+    public void sampleQueueLength() {
+        int queueLength = queueLengthProbe.getAsInt();
+        queueLengthSamples.increment();
+        queueLengthSum.add(queueLength);
+        maxQueueLength.accumulate(queueLength);
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    public long getContentions() {
+        return contentions.sum();
+    }
+
+    public long getWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    public long getHoldNanos() {
+        return holdNanos.sum();
+    }
+
+    public long getMaxQueueLength() {
+        return maxQueueLength.get();
+    }
+
+    public Map<String, Object> snapshot() {
+        long acquisitions = this.acquisitions.sum();
+        long contentions = this.contentions.sum();
+        long attempts = acquisitions + failures.sum();
+        long holds = this.holds.sum();
+        long samples = queueLengthSamples.sum();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("lock", name);
+        snapshot.put("acquisitions", acquisitions);
+        snapshot.put("contentions", contentions);
+        snapshot.put("failures", failures.sum());
+        snapshot.put("contentionPercent", attempts == 0 ? 0 : contentions * 100 / attempts);
+        snapshot.put("waitNanos", waitNanos.sum());
+        snapshot.put("avgWaitNanos", contentions == 0 ? 0 : waitNanos.sum() / contentions);
+        snapshot.put("maxWaitNanos", maxWaitNanos.get());
+        snapshot.put("holdNanos", holdNanos.sum());
+        snapshot.put("avgHoldNanos", holds == 0 ? 0 : holdNanos.sum() / holds);
+        snapshot.put("maxHoldNanos", maxHoldNanos.get());
+        snapshot.put("queueLengthSamples", samples);
+        snapshot.put("avgQueueLength", samples == 0 ? 0 : (double) queueLengthSum.sum() / samples);
+        snapshot.put("maxQueueLength", maxQueueLength.get());
+        return snapshot;
+    }
+
+    public void reset() {
+        acquisitions.reset();
+        contentions.reset();
+        failures.reset();
+        waitNanos.reset();
+        maxWaitNanos.reset();
+        holds.reset();
+        holdNanos.reset();
+        maxHoldNanos.reset();
+        queueLengthSamples.reset();
+        queueLengthSum.reset();
+        maxQueueLength.reset();
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+}
@@ -0,0 +1,76 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import me.josephzhu.javaconcurrenttest.benchmark.BenchmarkReport;
+import me.josephzhu.javaconcurrenttest.concurrent.executors.ThreadFactoryImpl;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * All instrumented locks by name. dump() writes the hottest locks first (by total wait time), scrape() renders
+ * the Prometheus text format so the numbers can be pulled by a monitoring system.
+ */
+public class LockMetricsRegistry {
+
+    private static final Map<String, LockMetrics> metrics = new ConcurrentHashMap<>();
+    private static volatile ScheduledExecutorService sampler;
+
+    public static LockMetrics metrics(String name) {
+        return metrics.computeIfAbsent(name, LockMetrics::new);
+    }
+
+    public static List<LockMetrics> all() {
+        return metrics.values().stream()
+                .sorted(Comparator.comparingLong(LockMetrics::getWaitNanos).reversed())
+                .collect(Collectors.toList());
+    }
+
+    public static void clear() {
+        metrics.clear();
+    }
+
+    // Samples the queue length of every lock periodically, in addition to the samples taken on contention
+    public static synchronized void startSampling(long period, TimeUnit unit) {
+        if (sampler != null)
+            return;
+        sampler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryImpl("lock-metrics-sampler-", true));
+        sampler.scheduleAtFixedRate(() -> metrics.values().forEach(LockMetrics::sampleQueueLength), 0, period, unit);
+    }
+
+    public static synchronized void stopSampling() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+            sampler = null;
+        }
+    }
+
+    public static BenchmarkReport dump() {
+        BenchmarkReport report = new BenchmarkReport("lock-metrics");
+        all().forEach(lockMetrics -> report.add(lockMetrics.snapshot()));
+        return report;
+    }
+
+    public static String scrape() {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (LockMetrics lockMetrics : all()) {
+            for (Map.Entry<String, Object> entry : lockMetrics.snapshot().entrySet()) {
+                if (entry.getValue() instanceof Number) {
+                    stringBuilder.append("lock_").append(toSnakeCase(entry.getKey()))
+                            .append("{lock=\"").append(lockMetrics.getName()).append("\"} ")
+                            .append(entry.getValue()).append("\n");
+                }
+            }
+        }
+        return stringBuilder.toString();
+    }
+
+    private static String toSnakeCase(String name) {
+        return name.replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase();
+    }
+}
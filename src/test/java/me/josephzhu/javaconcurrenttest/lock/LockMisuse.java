@@ -19,6 +19,17 @@ public class LockMisuse {
         executorService.awaitTermination(1, TimeUnit.HOURS);
         log.info("{}", Container.counter);
     }
+
+    // Same load without the global lock, CounterBenchmark compares the other counting strategies
+    @Test
+    public void test2() throws InterruptedException {
+        ExecutorService executorService = Executors.newFixedThreadPool(10);
+        Counter counter = Counter.longAdder();
+        IntStream.rangeClosed(1, 100000).forEach(i -> executorService.submit(counter::increment));
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.HOURS);
+        log.info("{}", counter.sum());
+    }
 }
 
 class Container {
@@ -0,0 +1,48 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.stream.Collectors;
+
+public class LockStrategies {
+
+    private static final Map<String, LockStrategy> strategies = new LinkedHashMap<>();
+
+    static {
+        register(LockStrategy.of(SyncTask.class));
+        register(LockStrategy.of(ReentrantLockTask.class));
+        register(LockStrategy.of(SpinThenParkLockTask.class));
+        register(LockStrategy.of(FairReentrantLockTask.class));
+        register(LockStrategy.of(McsLockTask.class));
+        register(LockStrategy.of(ReentrantReadWriteLockTask.class));
+        register(LockStrategy.of(FairReentrantReadWriteLockTask.class));
+        register(LockStrategy.of(StampedLockTask.class));
+        register(LockStrategy.of(ReentrantReadWriteLockDowngradeTask.class));
+        register(LockStrategy.of(StampedLockUpgradeTask.class));
+        register(LockStrategy.of(StripedLockTask.class));
+        ServiceLoader.load(LockStrategy.class).forEach(LockStrategies::register);
+    }
+
+    public static synchronized void register(LockStrategy lockStrategy) {
+        strategies.put(lockStrategy.name(), lockStrategy);
+    }
+
+    public static synchronized LockStrategy get(String name) {
+        LockStrategy lockStrategy = strategies.get(name);
+        if (lockStrategy == null)
+            throw new IllegalArgumentException("Unknown lock strategy:" + name + ", available:" + strategies.keySet());
+        return lockStrategy;
+    }
+
+    public static synchronized List<LockStrategy> all() {
+        return new ArrayList<>(strategies.values());
+    }
+
+    public static List<LockStrategy> get(String... names) {
+        return Arrays.stream(names).map(LockStrategies::get).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,43 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import java.util.function.Function;
+
+/**
+ * A lock under test. Implementations can be added with {@link LockStrategies#register(LockStrategy)}
+ * or listed in META-INF/services/me.josephzhu.javaconcurrenttest.lock.LockStrategy.
+ */
+public interface LockStrategy {
+
+    String name();
+
+    LockTask newTask(boolean write);
+
+    static LockStrategy of(Class<? extends LockTask> lockTaskClass) {
+        return of(lockTaskClass.getSimpleName(), write -> {
+            try {
+                return lockTaskClass.getDeclaredConstructor(Boolean.class).newInstance(write);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Cannot create " + lockTaskClass.getName(), e);
+            }
+        });
+    }
+
+    static LockStrategy of(String name, Function<Boolean, LockTask> factory) {
+        return new LockStrategy() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public LockTask newTask(boolean write) {
+                return factory.apply(write);
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+}
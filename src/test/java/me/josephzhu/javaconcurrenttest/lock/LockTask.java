@@ -0,0 +1,96 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import lombok.extern.slf4j.Slf4j;
+import me.josephzhu.javaconcurrenttest.benchmark.LatencyHistogram;
+import me.josephzhu.javaconcurrenttest.util.PaddedAtomicLong;
+
+import java.util.concurrent.CountDownLatch;
+
+@Slf4j
+public abstract class LockTask implements Runnable {
+    protected static volatile long counter;
+    static final PaddedAtomicLong paddedCounter = new PaddedAtomicLong();
+    static int criticalSectionLength;
+    static boolean recordLatency;
+    static Layout layout = Layout.PLAIN;
+    protected boolean write;
+    int loopCount;
+    CountDownLatch start;
+    CountDownLatch finish;
+    // Merged from the per thread histograms of all threads running this task
+    final LatencyHistogram latency = new LatencyHistogram();
+
+    public LockTask(Boolean write) {
+        this.write = write;
+    }
+
+    @Override
+    public void run() {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        if (recordLatency) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            for (int i = 0; i < loopCount; i++) {
+                long begin = System.nanoTime();
+                doTask();
+                histogram.record(System.nanoTime() - begin);
+            }
+            synchronized (latency) {
+                latency.add(histogram);
+            }
+        } else {
+            for (int i = 0; i < loopCount; i++) {
+                doTask();
+            }
+        }
+        finish.countDown();
+    }
+
+    abstract protected void doTask();
+
+    protected void increase() {
+        if (layout == Layout.PADDED)
+            paddedCounter.set(paddedCounter.get() + 1);
+        else
+            counter++;
+        work();
+    }
+
+    protected long read() {
+        long value = (layout == Layout.PADDED ? paddedCounter.get() : counter) + 1;
+        work();
+        return value;
+    }
+
+    protected void reset() {
+        counter = 0;
+        paddedCounter.set(0);
+    }
+
+    protected long count() {
+        return layout == Layout.PADDED ? paddedCounter.get() : counter;
+    }
+
+    // Simulates criticalSectionLength units of work inside the lock, the check keeps JIT from removing the loop
+    protected static void work() {
+        int length = criticalSectionLength;
+        long x = length;
+        for (int i = 0; i < length; i++) {
+            x = x * 6364136223846793005L + 1442695040888963407L;
+        }
+        if (x == Long.MIN_VALUE)
+            throw new IllegalStateException();
+    }
+
+    /**
+     * PLAIN: the counter is a static field next to the other LockTask statics and all threads of a role share one task instance.
+     * PADDED: the counter sits in its own cache line and every thread gets its own task instance.
+     */
+    enum Layout {
+        PLAIN,
+        PADDED
+    }
+}
@@ -0,0 +1,94 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import me.josephzhu.javaconcurrenttest.util.SpinWait;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * MCS queue lock: FIFO fair and non-reentrant. Every waiter spins on the flag of its own node instead of
+ * a shared word, then parks once spinBudget is used up. Unlock hands the lock directly to the successor.
+ * A queued node can't leave the queue, so there is no interruptible or timed acquisition, and no conditions;
+ * that is why this is not a {@link java.util.concurrent.locks.Lock}.
+ */
+public class McsLock {
+
+    private final AtomicReference<Node> tail = new AtomicReference<>();
+    private final ThreadLocal<Node> myNode = ThreadLocal.withInitial(Node::new);
+    private final int spinBudget;
+
+    public McsLock() {
+        this(Integer.getInteger("lock.spinBudget", 1000));
+    }
+
+    public McsLock(int spinBudget) {
+        this.spinBudget = spinBudget;
+    }
+
+    public void lock() {
+        Node node = myNode.get();
+        node.next = null;
+        node.locked = true;
+        Node predecessor = tail.getAndSet(node);
+        if (predecessor == null)
+            return;
+        predecessor.next = node;
+        int spins = 0;
+        while (node.locked) {
+            if (spins < spinBudget) {
+                spins++;
+                SpinWait.onSpinWait();
+            } else {
+                // Publish parked before re-checking locked, unlock() writes locked before reading parked
+                node.parked = true;
+                if (node.locked)
+                    LockSupport.park(this);
+                node.parked = false;
+            }
+        }
+    }
+
+    public boolean tryLock() {
+        if (tail.get() != null)
+            return false;
+        Node node = myNode.get();
+        node.next = null;
+        node.locked = true;
+        return tail.compareAndSet(null, node);
+    }
+
+    public void unlock() {
+        Node node = myNode.get();
+        Node next = node.next;
+        if (next == null) {
+            if (tail.compareAndSet(node, null))
+                return;
+            // A successor has swapped itself into tail but hasn't linked to us yet
+            while ((next = node.next) == null) {
+                SpinWait.onSpinWait();
+            }
+        }
+        node.next = null;
+        next.locked = false;
+        if (next.parked)
+            LockSupport.unpark(next.thread);
+    }
+
+    public boolean isLocked() {
+        return tail.get() != null;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[spinBudget=" + spinBudget + (isLocked() ? ", locked]" : ", unlocked]");
+    }
+
+    // Created by its own thread on its first lock(), so nodes of different threads sit in different TLABs and don't
+    // share cache lines without any padding
+    static final class Node {
+        final Thread thread = Thread.currentThread();
+        volatile boolean locked;
+        volatile boolean parked;
+        volatile Node next;
+    }
+}
@@ -0,0 +1,27 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+class McsLockTask extends LockTask {
+    private static McsLock locker = new McsLock();
+
+    public McsLockTask(Boolean write) {
+        super(write);
+    }
+
+    @Override
+    protected void doTask() {
+        locker.lock();
+        try {
+            if (write) {
+                increase();
+            } else {
+                long value = read();
+                //log.debug("{}, {}", this.getClass().getSimpleName(), value);
+            }
+        } finally {
+            locker.unlock();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+class ReentrantReadWriteLockDowngradeTask extends LockTask {
+    private static ReentrantReadWriteLock locker = new ReentrantReadWriteLock();
+
+    public ReentrantReadWriteLockDowngradeTask(Boolean write) {
+        super(write);
+    }
+
+    @Override
+    protected void doTask() {
+        if (write) {
+            locker.writeLock().lock();
+            try {
+                increase();
+                // Downgrade: take the read lock before releasing the write lock, so the value we just wrote can be used without other writers sneaking in
+                locker.readLock().lock();
+            } finally {
+                locker.writeLock().unlock();
+            }
+            try {
+                long value = read();
+                //log.debug("{}, {}", this.getClass().getSimpleName(), value);
+            } finally {
+                locker.readLock().unlock();
+            }
+        } else {
+            locker.readLock().lock();
+            try {
+                long value = read();
+                //log.debug("{}, {}", this.getClass().getSimpleName(), value);
+            } finally {
+                locker.readLock().unlock();
+            }
+        }
+    }
+}
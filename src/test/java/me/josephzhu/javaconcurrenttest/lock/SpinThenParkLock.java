@@ -0,0 +1,141 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import me.josephzhu.javaconcurrenttest.util.SpinWait;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Non-reentrant lock for tiny critical sections: spins with exponential backoff for up to spinBudget
+ * spin-waits before queueing and parking like ReentrantLock. Spinning threads may barge ahead of parked ones.
+ */
+public class SpinThenParkLock implements Lock {
+
+    private static final int MAX_BACKOFF = 64;
+
+    private final Sync sync = new Sync();
+    private final int spinBudget;
+
+    public SpinThenParkLock() {
+        this(Integer.getInteger("lock.spinBudget", 1000));
+    }
+
+    public SpinThenParkLock(int spinBudget) {
+        this.spinBudget = spinBudget;
+    }
+
+    private boolean spin() {
+        return spin(false, 0);
+    }
+
+    // A timed spin also stops at the deadline, so it never eats more than the caller's timeout
+    private boolean spin(boolean timed, long deadline) {
+        int backoff = 1;
+        int spins = 0;
+        while (spins < spinBudget) {
+            if (!sync.isLocked() && sync.tryAcquire(1))
+                return true;
+            if (timed && deadline - System.nanoTime() <= 0)
+                return false;
+            for (int i = 0; i < backoff; i++) {
+                SpinWait.onSpinWait();
+            }
+            spins += backoff;
+            if (backoff < MAX_BACKOFF)
+                backoff <<= 1;
+        }
+        return false;
+    }
+
+    public int getSpinBudget() {
+        return spinBudget;
+    }
+
+    public boolean isLocked() {
+        return sync.isLocked();
+    }
+
+    public int getQueueLength() {
+        return sync.getQueueLength();
+    }
+
+    @Override
+    public void lock() {
+        if (!spin())
+            sync.acquire(1);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        if (!spin())
+            sync.acquireInterruptibly(1);
+    }
+
+    @Override
+    public boolean tryLock() {
+        return sync.tryAcquire(1);
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        long deadline = System.nanoTime() + unit.toNanos(time);
+        // Only what is left after spinning goes to the queue, one last tryAcquire if nothing is
+        return spin(true, deadline) || sync.tryAcquireNanos(1, deadline - System.nanoTime());
+    }
+
+    @Override
+    public void unlock() {
+        sync.release(1);
+    }
+
+    @Override
+    public Condition newCondition() {
+        return sync.newCondition();
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[spinBudget=" + spinBudget + (isLocked() ? ", locked]" : ", unlocked]");
+    }
+
+    private static final class Sync extends AbstractQueuedSynchronizer {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean tryAcquire(int arg) {
+            if (compareAndSetState(0, 1)) {
+                setExclusiveOwnerThread(Thread.currentThread());
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        protected boolean tryRelease(int arg) {
+            if (getExclusiveOwnerThread() != Thread.currentThread())
+                throw new IllegalMonitorStateException();
+            setExclusiveOwnerThread(null);
+            setState(0);
+            return true;
+        }
+
+        @Override
+        protected boolean isHeldExclusively() {
+            return getExclusiveOwnerThread() == Thread.currentThread();
+        }
+
+        boolean isLocked() {
+            return getState() != 0;
+        }
+
+        Condition newCondition() {
+            return new ConditionObject();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+class SpinThenParkLockTask extends LockTask {
+    private static SpinThenParkLock defaultLocker = new SpinThenParkLock();
+    private final SpinThenParkLock locker;
+
+    public SpinThenParkLockTask(Boolean write) {
+        this(write, defaultLocker);
+    }
+
+    public SpinThenParkLockTask(Boolean write, SpinThenParkLock locker) {
+        super(write);
+        this.locker = locker;
+    }
+
+    @Override
+    protected void doTask() {
+        locker.lock();
+        try {
+            if (write) {
+                increase();
+            } else {
+                long value = read();
+                //log.debug("{}, {}", this.getClass().getSimpleName(), value);
+            }
+        } finally {
+            locker.unlock();
+        }
+    }
+}
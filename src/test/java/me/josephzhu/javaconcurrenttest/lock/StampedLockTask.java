@@ -0,0 +1,36 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.locks.StampedLock;
+
+@Slf4j
+class StampedLockTask extends LockTask {
+    private static StampedLock locker = new StampedLock();
+
+    public StampedLockTask(Boolean write) {
+        super(write);
+    }
+
+    @Override
+    protected void doTask() {
+        if (write) {
+            long stamp = locker.writeLock();
+            increase();
+            locker.unlockWrite(stamp);
+        } else {
+            long stamp = locker.tryOptimisticRead();
+            long value = read();
+
+            if (!locker.validate(stamp)) {
+                stamp = locker.readLock();
+                try {
+                    value = read();
+                } finally {
+                    locker.unlockRead(stamp);
+                }
+            }
+            //log.debug("{}, {}", this.getClass().getSimpleName(), value);
+        }
+    }
+}
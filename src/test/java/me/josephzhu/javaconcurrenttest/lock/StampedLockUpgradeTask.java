@@ -0,0 +1,47 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.locks.StampedLock;
+
+@Slf4j
+class StampedLockUpgradeTask extends LockTask {
+    private static StampedLock locker = new StampedLock();
+
+    public StampedLockUpgradeTask(Boolean write) {
+        super(write);
+    }
+
+    @Override
+    protected void doTask() {
+        if (write) {
+            // Read first, then upgrade in place, only fall back to a fresh write lock when the conversion fails
+            long stamp = locker.readLock();
+            try {
+                long value = read();
+                long writeStamp = locker.tryConvertToWriteLock(stamp);
+                if (writeStamp == 0L) {
+                    locker.unlockRead(stamp);
+                    writeStamp = locker.writeLock();
+                }
+                stamp = writeStamp;
+                increase();
+            } finally {
+                locker.unlock(stamp);
+            }
+        } else {
+            long stamp = locker.tryOptimisticRead();
+            long value = read();
+
+            if (!locker.validate(stamp)) {
+                stamp = locker.readLock();
+                try {
+                    value = read();
+                } finally {
+                    locker.unlockRead(stamp);
+                }
+            }
+            //log.debug("{}, {}", this.getClass().getSimpleName(), value);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import lombok.extern.slf4j.Slf4j;
+import me.josephzhu.javaconcurrenttest.util.PaddedAtomicLong;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writers only lock the stripe picked by their probe hash, readers lock every stripe in order to get a consistent sum.
+ * Like LongAdder, a thread that fails to get its stripe moves its probe to another stripe.
+ */
+@Slf4j
+class StripedLockTask extends LockTask {
+    private static final Stripe[] stripes = createStripes(Integer.getInteger("lock.stripes", Runtime.getRuntime().availableProcessors() * 2));
+    private static final ThreadLocal<int[]> probe = ThreadLocal.withInitial(() -> new int[]{initialProbe()});
+
+    public StripedLockTask(Boolean write) {
+        super(write);
+    }
+
+    private static Stripe[] createStripes(int count) {
+        int size = Integer.highestOneBit(Math.max(2, count) - 1) << 1;
+        Stripe[] stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        return stripes;
+    }
+
+    private static int initialProbe() {
+        long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        int h = (int) (id ^ (id >>> 32));
+        return h == 0 ? 1 : h;
+    }
+
+    private static Stripe lockStripe() {
+        int[] h = probe.get();
+        Stripe stripe = stripes[h[0] & (stripes.length - 1)];
+        if (stripe.lock.tryLock())
+            return stripe;
+        int next = h[0];
+        next ^= next << 13;
+        next ^= next >>> 17;
+        next ^= next << 5;
+        h[0] = next;
+        stripe = stripes[next & (stripes.length - 1)];
+        stripe.lock.lock();
+        return stripe;
+    }
+
+    private static long sum() {
+        long sum = 0;
+        for (Stripe stripe : stripes) {
+            sum += stripe.value.get();
+        }
+        return sum;
+    }
+
+    @Override
+    protected void doTask() {
+        if (write) {
+            Stripe stripe = lockStripe();
+            try {
+                stripe.value.lazySet(stripe.value.get() + 1);
+                work();
+            } finally {
+                stripe.lock.unlock();
+            }
+        } else {
+            for (Stripe stripe : stripes) {
+                stripe.lock.lock();
+            }
+            try {
+                long value = sum() + 1;
+                work();
+                //log.debug("{}, {}", this.getClass().getSimpleName(), value);
+            } finally {
+                for (int i = stripes.length - 1; i >= 0; i--) {
+                    stripes[i].lock.unlock();
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void reset() {
+        for (Stripe stripe : stripes) {
+            stripe.value.set(0);
+        }
+    }
+
+    @Override
+    protected long count() {
+        return sum();
+    }
+
+    static final class Stripe {
+        final PaddedAtomicLong value = new PaddedAtomicLong();
+        final ReentrantLock lock = new ReentrantLock();
+    }
+}
@@ -0,0 +1,24 @@
+package me.josephzhu.javaconcurrenttest.lock;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+class SyncTask extends LockTask {
+    private static Object locker = new Object();
+
+    public SyncTask(Boolean write) {
+        super(write);
+    }
+
+    @Override
+    protected void doTask() {
+        synchronized (locker) {
+            if (write) {
+                increase();
+            } else {
+                long value = read();
+                //log.debug("{}, {}", this.getClass().getSimpleName(), value);
+            }
+        }
+    }
+}
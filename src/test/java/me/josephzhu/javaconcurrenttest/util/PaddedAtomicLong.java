@@ -0,0 +1,59 @@
+package me.josephzhu.javaconcurrenttest.util;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * An AtomicLong with a cache line of its own, for counters and indexes that different threads write, so they
+ * don't invalidate each other's lines (false sharing). HotSpot lays out the fields of a superclass before those
+ * of its subclasses, so value ends up with the padding of PaddedAtomicLongLhs before it and of this class after it.
+ */
+public final class PaddedAtomicLong extends PaddedAtomicLongValue {
+    long p11, p12, p13, p14, p15, p16, p17;
+
+    public PaddedAtomicLong() {
+    }
+
+    public PaddedAtomicLong(long initialValue) {
+        value = initialValue;
+    }
+
+    public long get() {
+        return value;
+    }
+
+    public void set(long newValue) {
+        value = newValue;
+    }
+
+    public void lazySet(long newValue) {
+        VALUE.lazySet(this, newValue);
+    }
+
+    public boolean compareAndSet(long expect, long update) {
+        return VALUE.compareAndSet(this, expect, update);
+    }
+
+    public long incrementAndGet() {
+        return VALUE.incrementAndGet(this);
+    }
+
+    public long addAndGet(long delta) {
+        return VALUE.addAndGet(this, delta);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(value);
+    }
+}
+
+abstract class PaddedAtomicLongLhs {
+    long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class PaddedAtomicLongValue extends PaddedAtomicLongLhs {
+    static final AtomicLongFieldUpdater<PaddedAtomicLongValue> VALUE =
+            AtomicLongFieldUpdater.newUpdater(PaddedAtomicLongValue.class, "value");
+
+    volatile long value;
+}
@@ -0,0 +1,34 @@
+package me.josephzhu.javaconcurrenttest.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Busy-wait hint for spin loops in locks, queues and schedulers.
+ */
+public final class SpinWait {
+
+    // Thread.onSpinWait() only exists since Java 9, fall back to a plain busy spin on Java 8
+    private static final MethodHandle ON_SPIN_WAIT = onSpinWaitHandle();
+
+    private SpinWait() {
+    }
+
+    private static MethodHandle onSpinWaitHandle() {
+        try {
+            return MethodHandles.lookup().findStatic(Thread.class, "onSpinWait", MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    public static void onSpinWait() {
+        if (ON_SPIN_WAIT != null) {
+            try {
+                ON_SPIN_WAIT.invokeExact();
+            } catch (Throwable ignored) {
+            }
+        }
+    }
+}